@@ -0,0 +1,40 @@
+package com.novationmobile.view.benchmark;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+
+import com.novationmobile.view.SlidingMenuView;
+
+/**
+ * Hosts the view under benchmark, with list content in the menu and the main
+ * panel like a typical app.
+ */
+public class BenchmarkActivity extends Activity {
+
+    private static final int ITEM_COUNT= 100;
+
+    private SlidingMenuView mSlidingMenu;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.benchmark);
+
+        final String[] items= new String[ITEM_COUNT];
+        for (int i= 0; i < ITEM_COUNT; i++) {
+            items[i]= "Item " + i;
+        }
+        ((ListView) findViewById(R.id.menu)).setAdapter(new ArrayAdapter<String>(this,
+                android.R.layout.simple_list_item_1, items));
+        ((ListView) findViewById(R.id.main)).setAdapter(new ArrayAdapter<String>(this,
+                android.R.layout.simple_list_item_1, items));
+
+        mSlidingMenu= (SlidingMenuView) findViewById(R.id.sliding_menu);
+    }
+
+    public SlidingMenuView getSlidingMenu() {
+        return mSlidingMenu;
+    }
+}
@@ -0,0 +1,222 @@
+package com.novationmobile.view.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.View.MeasureSpec;
+
+import com.novationmobile.view.SlidingMenuView;
+
+/**
+ * Times the gesture, measure and animation paths of SlidingMenuView on a
+ * device. Run it with
+ *
+ * <pre>
+ * adb shell am instrument -w com.novationmobile.view.benchmark/.SlidingBenchmark
+ * </pre>
+ *
+ * The results are reported in the instrumentation result bundle and logged.
+ * Times are in nanoseconds, allocations count objects allocated on the main
+ * thread.
+ */
+public class SlidingBenchmark extends Instrumentation {
+
+    private static final String TAG= "SlidingBenchmark";
+
+    private static final int WARMUP_ITERATIONS= 50;
+    private static final int ITERATIONS= 500;
+    private static final int DRAG_MOVES= 60;
+    private static final int SNAPS= 20;
+    private static final long SNAP_TIMEOUT_SECONDS= 5;
+
+    private volatile CountDownLatch mSnapLatch;
+    private long mSnapFrames;
+    private long mSnapDroppedFrames;
+
+    @Override
+    public void onCreate(Bundle arguments) {
+        super.onCreate(arguments);
+        start();
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+
+        final Intent intent= new Intent(Intent.ACTION_MAIN);
+        intent.setClassName(getTargetContext(), BenchmarkActivity.class.getName());
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        final BenchmarkActivity activity= (BenchmarkActivity) startActivitySync(intent);
+        waitForIdleSync();
+
+        final SlidingMenuView view= activity.getSlidingMenu();
+        final Bundle results= new Bundle();
+        benchmarkDrag(view, results);
+        benchmarkMeasure(view, results);
+        benchmarkSnap(view, results);
+
+        for (String key : results.keySet()) {
+            Log.i(TAG, key + "=" + results.get(key));
+        }
+
+        activity.finish();
+        finish(Activity.RESULT_OK, results);
+    }
+
+    /**
+     * Replays a drag that opens the menu, through the same dispatch path as a
+     * real touch. The panel is closed again after every replay.
+     */
+    private void benchmarkDrag(final SlidingMenuView view, Bundle results) {
+        final MotionEvent[] trace= createDragTrace(view.getWidth(), view.getHeight());
+        final long[] result= new long[2];
+
+        runOnMainSync(new Runnable() {
+            public void run() {
+                replay(view, trace, WARMUP_ITERATIONS);
+
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                final long start= System.nanoTime();
+                replay(view, trace, ITERATIONS);
+                result[0]= System.nanoTime() - start;
+                Debug.stopAllocCounting();
+                result[1]= Debug.getThreadAllocCount();
+            }
+        });
+
+        for (MotionEvent ev : trace) {
+            ev.recycle();
+        }
+
+        final int events= ITERATIONS * trace.length;
+        results.putLong("drag.nsPerEvent", result[0] / events);
+        results.putDouble("drag.allocsPerEvent", result[1] / (double) events);
+    }
+
+    private static MotionEvent[] createDragTrace(int width, int height) {
+        final MotionEvent[] trace= new MotionEvent[DRAG_MOVES + 2];
+        final long downTime= SystemClock.uptimeMillis();
+        final float y= height / 2f;
+        final float step= width * .8f / DRAG_MOVES;
+
+        trace[0]= MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, 1f, y, 0);
+        for (int i= 1; i <= DRAG_MOVES; i++) {
+            // One move per 60Hz frame
+            trace[i]= MotionEvent.obtain(downTime, downTime + i * 16, MotionEvent.ACTION_MOVE,
+                    1f + i * step, y, 0);
+        }
+        trace[DRAG_MOVES + 1]= MotionEvent.obtain(downTime, downTime + (DRAG_MOVES + 1) * 16,
+                MotionEvent.ACTION_UP, 1f + DRAG_MOVES * step, y, 0);
+        return trace;
+    }
+
+    private static void replay(SlidingMenuView view, MotionEvent[] trace, int iterations) {
+        for (int i= 0; i < iterations; i++) {
+            for (MotionEvent ev : trace) {
+                view.dispatchTouchEvent(ev);
+            }
+            view.close();
+        }
+    }
+
+    /**
+     * Measures and lays out the view, switching between portrait and
+     * landscape sizes so every pass is a real one.
+     */
+    private void benchmarkMeasure(final SlidingMenuView view, Bundle results) {
+        final long[] result= new long[2];
+
+        runOnMainSync(new Runnable() {
+            public void run() {
+                final int width= view.getWidth();
+                final int height= view.getHeight();
+
+                measure(view, width, height, WARMUP_ITERATIONS);
+
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                final long start= System.nanoTime();
+                measure(view, width, height, ITERATIONS);
+                result[0]= System.nanoTime() - start;
+                Debug.stopAllocCounting();
+                result[1]= Debug.getThreadAllocCount();
+
+                view.requestLayout();
+            }
+        });
+
+        results.putLong("measure.nsPerPass", result[0] / (ITERATIONS * 2));
+        results.putDouble("measure.allocsPerPass", result[1] / (double) (ITERATIONS * 2));
+    }
+
+    private static void measure(SlidingMenuView view, int width, int height, int iterations) {
+        for (int i= 0; i < iterations; i++) {
+            layout(view, height, width);
+            layout(view, width, height);
+        }
+    }
+
+    private static void layout(SlidingMenuView view, int width, int height) {
+        view.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+    }
+
+    /**
+     * Runs full open and close animations on the display's frames.
+     */
+    private void benchmarkSnap(final SlidingMenuView view, Bundle results) {
+        runOnMainSync(new Runnable() {
+            public void run() {
+                view.setOnSnapFinishedListener(new SlidingMenuView.OnSnapFinishedListener() {
+                    public void onSnapFinished(boolean open, int frames, int droppedFrames) {
+                        mSnapFrames+= frames;
+                        mSnapDroppedFrames+= droppedFrames;
+                        mSnapLatch.countDown();
+                    }
+                });
+            }
+        });
+
+        long elapsed= 0;
+        for (int i= 0; i < SNAPS; i++) {
+            mSnapLatch= new CountDownLatch(1);
+            final long start= System.nanoTime();
+            runOnMainSync(new Runnable() {
+                public void run() {
+                    view.animateToggle();
+                }
+            });
+
+            try {
+                if (!mSnapLatch.await(SNAP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    Log.w(TAG, "Animation didn't finish");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            elapsed+= System.nanoTime() - start;
+        }
+
+        runOnMainSync(new Runnable() {
+            public void run() {
+                view.setOnSnapFinishedListener(null);
+                view.close();
+            }
+        });
+
+        results.putLong("snap.nsPerSnap", elapsed / SNAPS);
+        results.putDouble("snap.framesPerSnap", mSnapFrames / (double) SNAPS);
+        results.putDouble("snap.droppedFramesPerSnap", mSnapDroppedFrames / (double) SNAPS);
+    }
+}
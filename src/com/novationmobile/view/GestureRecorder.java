@@ -0,0 +1,110 @@
+package com.novationmobile.view;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import android.support.v4.view.MotionEventCompat;
+import android.view.MotionEvent;
+
+/**
+ * Records the touch events a {@link SlidingMenuView} receives, together with
+ * the slide offset and state each event left it in, so a gesture can be
+ * replayed with {@link GestureReplayer}. Meant for debug builds, for example
+ *
+ * <pre>
+ * if (BuildConfig.DEBUG) {
+ *     slidingMenu.setGestureRecorder(new GestureRecorder(out));
+ * }
+ * </pre>
+ *
+ * Recording happens on the main thread while the events are dispatched, so
+ * give the recorder a stream that doesn't block, like a file. Writing errors
+ * stop the recording and are reported by {@link #checkError()}.
+ */
+public final class GestureRecorder {
+
+    static final int MAGIC= 0x534c4754; // "SLGT"
+    static final int VERSION= 1;
+
+    // Written in place of an action to end the trace
+    static final int END_OF_TRACE= -1;
+
+    private final DataOutputStream mOut;
+    private boolean mHeaderWritten;
+    private long mStartTime= -1;
+    private boolean mError;
+    private boolean mClosed;
+
+    public GestureRecorder(OutputStream out) {
+        mOut= new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    /**
+     * Called by the view after it has dispatched an event.
+     */
+    void record(SlidingMenuView view, MotionEvent ev) {
+        if (mError || mClosed) {
+            return;
+        }
+
+        try {
+            if (!mHeaderWritten) {
+                mHeaderWritten= true;
+                mOut.writeInt(MAGIC);
+                mOut.writeShort(VERSION);
+                mOut.writeInt(view.getWidth());
+                mOut.writeInt(view.getHeight());
+                mOut.writeFloat(view.getResources().getDisplayMetrics().density);
+            }
+
+            // Times are stored relative to the first event
+            if (mStartTime == -1) {
+                mStartTime= ev.getDownTime();
+            }
+            mOut.writeShort(ev.getAction());
+            mOut.writeInt((int) (ev.getDownTime() - mStartTime));
+            mOut.writeInt((int) (ev.getEventTime() - mStartTime));
+
+            final int pointerCount= ev.getPointerCount();
+            mOut.writeByte(pointerCount);
+            for (int i= 0; i < pointerCount; i++) {
+                mOut.writeByte(MotionEventCompat.getPointerId(ev, i));
+                mOut.writeFloat(MotionEventCompat.getX(ev, i));
+                mOut.writeFloat(MotionEventCompat.getY(ev, i));
+            }
+
+            mOut.writeInt(view.getSlideOffset());
+            mOut.writeByte(view.getOpenSide());
+        } catch (IOException e) {
+            mError= true;
+        }
+    }
+
+    /**
+     * End the trace and close the stream. Events after this are ignored.
+     */
+    public void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed= true;
+
+        try {
+            if (mHeaderWritten && !mError) {
+                mOut.writeShort(END_OF_TRACE);
+            }
+            mOut.close();
+        } catch (IOException e) {
+            mError= true;
+        }
+    }
+
+    /**
+     * @return true if writing the trace failed, the trace is incomplete then
+     */
+    public boolean checkError() {
+        return mError;
+    }
+}
@@ -0,0 +1,242 @@
+package com.novationmobile.view;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View.MeasureSpec;
+
+/**
+ * Feeds a trace written by {@link GestureRecorder} into a view and compares
+ * the slide offset after every event with the recorded one. The view doesn't
+ * need to be attached to a window; animations started by the gesture don't
+ * run then, so the trace is compared event by event, the way it was
+ * recorded.
+ */
+public final class GestureReplayer {
+
+    private GestureReplayer() {
+    }
+
+    /**
+     * Replay a trace on the main thread. The view is measured and laid out at
+     * the recorded size first, and should be in the state the recording
+     * started in.
+     *
+     * @throws IOException if the trace can't be read or isn't a trace
+     */
+    public static Result replay(InputStream in, SlidingMenuView view) throws IOException {
+        final DataInputStream data= new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != GestureRecorder.MAGIC) {
+            throw new IOException("Not a gesture trace");
+        }
+        final int version= data.readShort();
+        if (version != GestureRecorder.VERSION) {
+            throw new IOException("Unknown gesture trace version " + version);
+        }
+
+        final int width= data.readInt();
+        final int height= data.readInt();
+        final Result result= new Result(data.readFloat());
+
+        view.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+
+        final long startTime= SystemClock.uptimeMillis();
+        int[] pointerIds= new int[1];
+        MotionEvent.PointerCoords[] pointerCoords= null;
+
+        int action;
+        while ((action= data.readShort()) != GestureRecorder.END_OF_TRACE) {
+            final long downTime= startTime + data.readInt();
+            final long eventTime= startTime + data.readInt();
+            final int pointerCount= data.readByte();
+
+            final MotionEvent ev;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+                if (pointerIds.length < pointerCount || pointerCoords == null) {
+                    pointerIds= new int[pointerCount];
+                    pointerCoords= new MotionEvent.PointerCoords[pointerCount];
+                    for (int i= 0; i < pointerCount; i++) {
+                        pointerCoords[i]= new MotionEvent.PointerCoords();
+                    }
+                }
+                for (int i= 0; i < pointerCount; i++) {
+                    pointerIds[i]= data.readByte();
+                    pointerCoords[i].x= data.readFloat();
+                    pointerCoords[i].y= data.readFloat();
+                    pointerCoords[i].pressure= 1f;
+                    pointerCoords[i].size= 1f;
+                }
+                ev= Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH
+                        ? IcsEvents.obtain(downTime, eventTime, action, pointerCount,
+                                pointerIds, pointerCoords)
+                        : obtainGingerbread(downTime, eventTime, action, pointerCount,
+                                pointerIds, pointerCoords);
+            } else {
+                // Only single touch events can be created, keep the first pointer
+                data.readByte();
+                final float x= data.readFloat();
+                final float y= data.readFloat();
+                data.skipBytes((pointerCount - 1) * 9);
+                ev= MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+            }
+
+            final long start= System.nanoTime();
+            view.dispatchTouchEvent(ev);
+            final long time= System.nanoTime() - start;
+            ev.recycle();
+
+            result.add(time, data.readInt(), data.readByte(), view.getSlideOffset(),
+                    view.getOpenSide());
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static MotionEvent obtainGingerbread(long downTime, long eventTime, int action,
+            int pointerCount, int[] pointerIds, MotionEvent.PointerCoords[] pointerCoords) {
+        return MotionEvent.obtain(downTime, eventTime, action, pointerCount, pointerIds,
+                pointerCoords, 0, 1f, 1f, 0, 0, 0, 0);
+    }
+
+    /*
+     * A class of its own so PointerProperties is only loaded on API levels
+     * that have it.
+     */
+    private static class IcsEvents {
+        private static MotionEvent.PointerProperties[] sProperties=
+                new MotionEvent.PointerProperties[0];
+
+        static MotionEvent obtain(long downTime, long eventTime, int action, int pointerCount,
+                int[] pointerIds, MotionEvent.PointerCoords[] pointerCoords) {
+            if (sProperties.length < pointerCount) {
+                sProperties= new MotionEvent.PointerProperties[pointerCount];
+                for (int i= 0; i < pointerCount; i++) {
+                    sProperties[i]= new MotionEvent.PointerProperties();
+                    sProperties[i].toolType= MotionEvent.TOOL_TYPE_FINGER;
+                }
+            }
+            for (int i= 0; i < pointerCount; i++) {
+                sProperties[i].id= pointerIds[i];
+            }
+            return MotionEvent.obtain(downTime, eventTime, action, pointerCount, sProperties,
+                    pointerCoords, 0, 0, 1f, 1f, 0, 0, 0, 0);
+        }
+    }
+
+    /**
+     * What a replay did, event by event.
+     */
+    public static final class Result {
+        private final float mRecordedDensity;
+        private long[] mTimes= new long[64];
+        private int[] mRecordedOffsets= new int[64];
+        private int[] mOffsets= new int[64];
+        private int mCount;
+        private int mMismatchCount;
+        private int mRecordedState= SlidingMenuView.SIDE_NONE;
+        private int mState= SlidingMenuView.SIDE_NONE;
+
+        Result(float recordedDensity) {
+            mRecordedDensity= recordedDensity;
+        }
+
+        void add(long time, int recordedOffset, int recordedState, int offset, int state) {
+            if (mCount == mTimes.length) {
+                final int capacity= mCount * 2;
+                mTimes= copyOf(mTimes, capacity);
+                mRecordedOffsets= copyOf(mRecordedOffsets, capacity);
+                mOffsets= copyOf(mOffsets, capacity);
+            }
+
+            mTimes[mCount]= time;
+            mRecordedOffsets[mCount]= recordedOffset;
+            mOffsets[mCount]= offset;
+            mCount++;
+
+            if (offset != recordedOffset || state != recordedState) {
+                mMismatchCount++;
+            }
+            mRecordedState= recordedState;
+            mState= state;
+        }
+
+        public int getEventCount() {
+            return mCount;
+        }
+
+        /**
+         * @return nanoseconds the view took to dispatch the event
+         */
+        public long getEventTime(int index) {
+            checkIndex(index);
+            return mTimes[index];
+        }
+
+        public int getRecordedOffset(int index) {
+            checkIndex(index);
+            return mRecordedOffsets[index];
+        }
+
+        public int getOffset(int index) {
+            checkIndex(index);
+            return mOffsets[index];
+        }
+
+        /**
+         * @return number of events after which the offset or the state
+         *         differed from the recording
+         */
+        public int getMismatchCount() {
+            return mMismatchCount;
+        }
+
+        /**
+         * @return the SIDE_* state the recording ended in
+         */
+        public int getRecordedState() {
+            return mRecordedState;
+        }
+
+        /**
+         * @return the SIDE_* state the replay ended in
+         */
+        public int getState() {
+            return mState;
+        }
+
+        /**
+         * Thresholds like the touch slop and the fling velocity scale with the
+         * density, so compare this to the replaying device's density before
+         * expecting an exact match.
+         */
+        public float getRecordedDensity() {
+            return mRecordedDensity;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= mCount) {
+                throw new IndexOutOfBoundsException("Event " + index + " of " + mCount);
+            }
+        }
+
+        private static long[] copyOf(long[] array, int capacity) {
+            final long[] copy= new long[capacity];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            return copy;
+        }
+
+        private static int[] copyOf(int[] array, int capacity) {
+            final int[] copy= new int[capacity];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.novationmobile.view;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+/**
+ * Animates the slide offset from the display's frame callbacks. The position
+ * of every frame is computed from the frame time, so a slow frame makes the
+ * animation skip ahead instead of stretching it.
+ * <p>
+ * Animations either run for a fixed duration along an interpolator, or follow
+ * a damped spring that starts with the velocity the finger left the panel
+ * with. An animation that starts with a velocity, for example because it
+ * replaces one that is still running, follows a curve that starts with that
+ * velocity, so retargeting doesn't make the panel jerk.
+ */
+class SlideAnimator implements Runnable {
+
+    interface Callback {
+        public void onAnimationFrame(int offset);
+
+        public void onAnimationEnd(int frames, int droppedFrames);
+    }
+
+    /*
+     * A spring is at rest when it is within half a pixel of its target and
+     * would move less than half a pixel in the next frame.
+     */
+    private static final float SPRING_REST_DISTANCE= .5f;
+
+    /*
+     * An animation that starts moving needs some time to turn around, even
+     * when it is already close to its target.
+     */
+    private static final int MIN_VELOCITY_DURATION_MILLIS= 150;
+
+    // Fraction of the duration used to estimate the interpolator's slope
+    private static final float SLOPE_STEP= .01f;
+
+    private final View mView;
+    private final Callback mCallback;
+    private long mFrameIntervalMillis;
+    private Interpolator mInterpolator= new ViscousFluidInterpolator();
+
+    private boolean mRunning;
+    private int mStartOffset;
+    private int mDelta;
+    private long mStartTime;
+    private long mDuration;
+    private long mLastFrameTime;
+    private int mFrames;
+    private int mDroppedFrames;
+    private int mFrameOffset;
+
+    private boolean mSpring;
+    private boolean mHermite;
+    private float mVelocity;
+    private float mStiffness;
+    private float mDampingRatio;
+    private float mStartVelocity;
+    private float mSpringDisplacement;
+
+    /**
+     * @param view the view whose frame callbacks drive the animation
+     * @param callback receives every frame and the end of the animation
+     * @param refreshRate refresh rate of the display in frames per second
+     */
+    SlideAnimator(View view, Callback callback, float refreshRate) {
+        mView= view;
+        mCallback= callback;
+        setRefreshRate(refreshRate);
+    }
+
+    /**
+     * @param refreshRate refresh rate of the display in frames per second
+     */
+    public void setRefreshRate(float refreshRate) {
+        mFrameIntervalMillis= Math.max(1, Math.round(1000f / refreshRate));
+    }
+
+    public Interpolator getInterpolator() {
+        return mInterpolator;
+    }
+
+    public void setInterpolator(Interpolator interpolator) {
+        mInterpolator= interpolator != null ? interpolator : new ViscousFluidInterpolator();
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * @return the velocity of the last frame in pixels per second, or 0 when
+     *         no animation is running
+     */
+    public float getVelocity() {
+        return mRunning ? mVelocity : 0f;
+    }
+
+    /**
+     * Animate from one offset to another. A running animation is replaced.
+     * 
+     * @param velocity start velocity in pixels per second. With 0 the
+     *            animation follows the interpolator, otherwise a cubic curve
+     *            that starts with this velocity and comes to rest at the
+     *            target.
+     */
+    public void start(int fromOffset, int toOffset, int duration, float velocity) {
+        mSpring= false;
+        mStartOffset= fromOffset;
+        mDelta= toOffset - fromOffset;
+        mHermite= velocity != 0f;
+        mDuration= Math.max(mHermite ? MIN_VELOCITY_DURATION_MILLIS : 0, duration);
+
+        /*
+         * Towards the target, a start velocity above three times the average
+         * one makes the curve overshoot it, past the edge of the menu.
+         */
+        final float limit= 3f * mDelta * 1000f / Math.max(1, mDuration);
+        mStartVelocity= velocity * mDelta >= 0 && Math.abs(velocity) > Math.abs(limit) ? limit
+                : velocity;
+        begin();
+    }
+
+    /**
+     * Settle on an offset with a damped spring. The animation ends as soon as
+     * the spring is at rest or reaches the target, since the target is always
+     * the edge of the slide range.
+     * 
+     * @param velocity start velocity in pixels per second
+     * @param stiffness spring stiffness, for a unit mass
+     * @param dampingRatio 1 is critically damped, lower values bounce
+     */
+    public void startSpring(int fromOffset, int toOffset, float velocity, float stiffness,
+            float dampingRatio) {
+        mSpring= true;
+        mHermite= false;
+        mStartOffset= fromOffset;
+        mDelta= toOffset - fromOffset;
+        mStartVelocity= velocity;
+        mStiffness= stiffness;
+        mDampingRatio= dampingRatio;
+        begin();
+    }
+
+    private void begin() {
+        mStartTime= AnimationUtils.currentAnimationTimeMillis();
+        mLastFrameTime= mStartTime;
+        mVelocity= mStartVelocity;
+        mFrames= 0;
+        mDroppedFrames= 0;
+
+        if (!mRunning) {
+            mRunning= true;
+            ViewCompat.postOnAnimation(mView, this);
+        }
+    }
+
+    /**
+     * Stop the animation where it is, without reporting its end.
+     */
+    public void cancel() {
+        if (mRunning) {
+            mRunning= false;
+            mView.removeCallbacks(this);
+        }
+    }
+
+    public void run() {
+        if (!mRunning) {
+            return;
+        }
+
+        final long now= AnimationUtils.currentAnimationTimeMillis();
+
+        // Any whole frame intervals beyond the first one were missed
+        final long sinceLastFrame= now - mLastFrameTime;
+        if (sinceLastFrame > mFrameIntervalMillis + mFrameIntervalMillis / 2) {
+            mDroppedFrames+=
+                    (int) ((sinceLastFrame + mFrameIntervalMillis / 2) / mFrameIntervalMillis) - 1;
+        }
+        mLastFrameTime= now;
+        mFrames++;
+
+        if (computeFrame(now - mStartTime)) {
+            mRunning= false;
+            mCallback.onAnimationFrame(mStartOffset + mDelta);
+            mCallback.onAnimationEnd(mFrames, mDroppedFrames);
+        } else {
+            mCallback.onAnimationFrame(mFrameOffset);
+            ViewCompat.postOnAnimation(mView, this);
+        }
+    }
+
+    /**
+     * Compute the offset and velocity of the animation at a time. Only
+     * depends on the time, so it can be computed for any frame.
+     * 
+     * @param elapsed milliseconds since the start of the animation
+     * @return true if the animation is finished at that time
+     */
+    boolean computeFrame(long elapsed) {
+        final int offset;
+        final boolean finished;
+
+        if (mSpring) {
+            final float velocity= computeSpring(elapsed / 1000f);
+            mVelocity= velocity;
+
+            /*
+             * The displacement is measured from the target, so a sign change
+             * means the spring has reached it.
+             */
+            finished= Math.abs(mSpringDisplacement) < SPRING_REST_DISTANCE
+                    && Math.abs(velocity) * mFrameIntervalMillis / 1000f < SPRING_REST_DISTANCE
+                    || mDelta != 0 && mSpringDisplacement * -mDelta <= 0;
+            offset= mStartOffset + mDelta + Math.round(mSpringDisplacement);
+        } else if (mHermite) {
+            /*
+             * Cubic Hermite curve from the start with the start velocity to
+             * the target at rest.
+             */
+            final float fraction= Math.min(1f, elapsed / (float) mDuration);
+            final float seconds= mDuration / 1000f;
+            final float remaining= 1f - fraction;
+            finished= fraction >= 1f;
+            offset= mStartOffset + Math.round(mDelta * fraction * fraction * (3f - 2f * fraction)
+                    + mStartVelocity * seconds * fraction * remaining * remaining);
+            mVelocity= mDelta * 6f * fraction * remaining / seconds
+                    + mStartVelocity * remaining * (1f - 3f * fraction);
+        } else {
+            final float fraction= mDuration == 0 ? 1f : elapsed / (float) mDuration;
+            finished= fraction >= 1f;
+            offset= mStartOffset + Math.round(mDelta * mInterpolator.getInterpolation(fraction));
+
+            if (!finished) {
+                final float before= Math.max(0f, fraction - SLOPE_STEP);
+                final float after= Math.min(1f, fraction + SLOPE_STEP);
+                mVelocity= mDelta * (mInterpolator.getInterpolation(after)
+                        - mInterpolator.getInterpolation(before))
+                        / ((after - before) * mDuration / 1000f);
+            }
+        }
+
+        mFrameOffset= finished ? mStartOffset + mDelta : offset;
+        return finished;
+    }
+
+    /**
+     * @return the offset of the frame last computed
+     */
+    int getFrameOffset() {
+        return mFrameOffset;
+    }
+
+    /**
+     * @return the velocity of the frame last computed in pixels per second,
+     *         also after the animation was cancelled
+     */
+    float getFrameVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * Solve the spring analytically, so the result only depends on the time
+     * and not on how many frames were drawn.
+     * 
+     * @param t seconds since the start of the animation
+     * @return the velocity in pixels per second; the displacement from the
+     *         target is stored in mSpringDisplacement
+     */
+    private float computeSpring(float t) {
+        final double x0= -mDelta;
+        final double v0= mStartVelocity;
+        final double omega= Math.sqrt(mStiffness);
+        final double zeta= mDampingRatio;
+
+        final double x;
+        final double v;
+        if (zeta < 1) {
+            // Under damped
+            final double decay= zeta * omega;
+            final double omegaD= omega * Math.sqrt(1 - zeta * zeta);
+            final double envelope= Math.exp(-decay * t);
+            final double cos= Math.cos(omegaD * t);
+            final double sin= Math.sin(omegaD * t);
+            x= envelope * (x0 * cos + (v0 + decay * x0) / omegaD * sin);
+            v= envelope * (v0 * cos - (decay * v0 + omega * omega * x0) / omegaD * sin);
+        } else if (zeta == 1) {
+            // Critically damped
+            final double envelope= Math.exp(-omega * t);
+            final double b= v0 + omega * x0;
+            x= envelope * (x0 + b * t);
+            v= envelope * (b - omega * (x0 + b * t));
+        } else {
+            // Over damped
+            final double root= omega * Math.sqrt(zeta * zeta - 1);
+            final double r1= -zeta * omega + root;
+            final double r2= -zeta * omega - root;
+            final double c1= (v0 - r2 * x0) / (r1 - r2);
+            final double c2= x0 - c1;
+            x= c1 * Math.exp(r1 * t) + c2 * Math.exp(r2 * t);
+            v= c1 * r1 * Math.exp(r1 * t) + c2 * r2 * Math.exp(r2 * t);
+        }
+
+        mSpringDisplacement= (float) x;
+        return (float) v;
+    }
+
+    /**
+     * The curve android.widget.Scroller uses by default, so animations keep
+     * the feel they had before.
+     */
+    static class ViscousFluidInterpolator implements Interpolator {
+
+        private static final float VISCOUS_FLUID_SCALE= 8f;
+        private static final float VISCOUS_FLUID_NORMALIZE= 1f / viscousFluid(1f);
+
+        private static float viscousFluid(float x) {
+            x*= VISCOUS_FLUID_SCALE;
+            if (x < 1f) {
+                x-= (1f - (float) Math.exp(-x));
+            } else {
+                float start= 0.36787944117f; // 1/e == exp(-1)
+                x= 1f - (float) Math.exp(1f - x);
+                x= start + x * (1f - start);
+            }
+            return x;
+        }
+
+        public float getInterpolation(float input) {
+            return viscousFluid(input) * VISCOUS_FLUID_NORMALIZE;
+        }
+    }
+}
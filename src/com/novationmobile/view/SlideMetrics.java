@@ -0,0 +1,146 @@
+package com.novationmobile.view;
+
+/**
+ * A batch of performance events recorded while the menu is dragged or
+ * animated. Events are recorded into preallocated arrays and handed to the
+ * {@link SlidingMenuView.OnSlideMetricsListener} after the gesture or
+ * animation, so recording stays cheap. The batch is cleared once the listener
+ * returns, so copy out anything that should be kept.
+ */
+public final class SlideMetrics {
+
+    /**
+     * Time from the touch down to the first move of the panel, value in
+     * milliseconds.
+     */
+    public static final int EVENT_TOUCH_LATENCY= 0;
+
+    /**
+     * Time between two consecutive drag moves of the panel, value in
+     * milliseconds.
+     */
+    public static final int EVENT_DRAG_FRAME= 1;
+
+    /**
+     * A finished open or close animation. The value is the actual duration in
+     * milliseconds, the extra is the requested duration, or -1 for a spring.
+     */
+    public static final int EVENT_SNAP= 2;
+
+    /**
+     * Number of frames dropped during an open or close animation, in the
+     * value.
+     */
+    public static final int EVENT_JANK_FRAMES= 3;
+
+    /**
+     * The panel started to settle. The value is one of the SETTLE_* reasons,
+     * the extra is the SlidingMenuView.SIDE_* constant of the menu it settles
+     * on, or SIDE_NONE when it settles closed.
+     */
+    public static final int EVENT_SETTLE= 4;
+
+    /**
+     * Time spent drawing the first frame that uncovered a menu, value in
+     * microseconds. The extra is 1 if the menu was prewarmed, that is drawn
+     * while the touch started and before it was uncovered, otherwise 0.
+     */
+    public static final int EVENT_FIRST_REVEAL= 5;
+
+    /**
+     * The panel was released fast enough to fling it.
+     */
+    public static final int SETTLE_FLING= 0;
+
+    /**
+     * The panel was released and settles depending on how far it was dragged.
+     */
+    public static final int SETTLE_THRESHOLD= 1;
+
+    /**
+     * The open panel was tapped to close it.
+     */
+    public static final int SETTLE_TAP_TO_CLOSE= 2;
+
+    /**
+     * The menu was opened or closed through the API.
+     */
+    public static final int SETTLE_PROGRAMMATIC= 3;
+
+    private static final int CAPACITY= 128;
+
+    private final int[] mTypes= new int[CAPACITY];
+    private final long[] mTimes= new long[CAPACITY];
+    private final long[] mValues= new long[CAPACITY];
+    private final long[] mExtras= new long[CAPACITY];
+    private int mCount;
+    private int mLostCount;
+
+    SlideMetrics() {
+    }
+
+    public int getEventCount() {
+        return mCount;
+    }
+
+    /**
+     * @return one of the EVENT_* constants
+     */
+    public int getEventType(int index) {
+        checkIndex(index);
+        return mTypes[index];
+    }
+
+    /**
+     * @return the uptime in milliseconds when the event was recorded
+     */
+    public long getEventTime(int index) {
+        checkIndex(index);
+        return mTimes[index];
+    }
+
+    public long getEventValue(int index) {
+        checkIndex(index);
+        return mValues[index];
+    }
+
+    public long getEventExtra(int index) {
+        checkIndex(index);
+        return mExtras[index];
+    }
+
+    /**
+     * @return number of events that did not fit in this batch
+     */
+    public int getLostEventCount() {
+        return mLostCount;
+    }
+
+    boolean isFull() {
+        return mCount == CAPACITY;
+    }
+
+    void record(int type, long time, long value, long extra) {
+        if (mCount == CAPACITY) {
+            mLostCount++;
+            return;
+        }
+
+        mTypes[mCount]= type;
+        mTimes[mCount]= time;
+        mValues[mCount]= value;
+        mExtras[mCount]= extra;
+        mCount++;
+    }
+
+    void clear() {
+        mCount= 0;
+        mLostCount= 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("Event " + index + " of " + mCount);
+        }
+    }
+}
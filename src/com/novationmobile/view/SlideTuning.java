@@ -0,0 +1,158 @@
+package com.novationmobile.view;
+
+import android.content.Context;
+import android.provider.Settings;
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.WindowManager;
+
+/**
+ * How the panel moves: animation duration, fling velocity and swipe threshold,
+ * together with the refresh rate animations are timed against. Use
+ * {@link #forDisplay(Context)} to derive them from the display, or
+ * {@link #forReducedMotion(Context)} for users who turned animations off.
+ */
+public final class SlideTuning {
+
+    /*
+     * A full animation takes this long on a phone of the reference width, and
+     * grows with the square root of the physical width on larger screens.
+     */
+    private static final int BASE_DURATION_MILLIS= 500;
+    private static final float REFERENCE_WIDTH_INCHES= 2.5f;
+    private static final int MIN_DURATION_MILLIS= 300;
+    private static final int MAX_DURATION_MILLIS= 650;
+
+    // Release velocity that flings the panel, 600dp per second
+    private static final float SNAP_VELOCITY_INCHES_PER_SECOND= 3.75f;
+
+    // A drag longer than this always settles on the other state
+    private static final float MAX_SWIPE_THRESHOLD_INCHES= .4f;
+
+    private static final float DEFAULT_REFRESH_RATE= 60f;
+
+    // Not in the API level this is built against, read by name
+    private static final String ANIMATOR_DURATION_SCALE= "animator_duration_scale";
+
+    private final int mAnimationDuration;
+    private final int mSnapVelocity;
+    private final int mMaxSwipeThreshold;
+    private final float mRefreshRate;
+    private final boolean mReducedMotion;
+
+    /**
+     * @param animationDuration duration of a full open or close animation in
+     *            milliseconds
+     * @param snapVelocity release velocity in pixels per second that flings
+     *            the panel
+     * @param maxSwipeThreshold longest drag in pixels that may still settle
+     *            back; shorter drags need an eighth of the width
+     * @param refreshRate refresh rate of the display in frames per second
+     * @param reducedMotion whether the panel should move without springs and
+     *            draw time effects
+     */
+    public SlideTuning(int animationDuration, int snapVelocity, int maxSwipeThreshold,
+            float refreshRate, boolean reducedMotion) {
+        if (animationDuration < 0 || snapVelocity < 0 || maxSwipeThreshold < 0) {
+            throw new IllegalArgumentException("Tuning values must not be negative");
+        }
+        if (refreshRate <= 0f) {
+            throw new IllegalArgumentException("Refresh rate must be positive");
+        }
+        mAnimationDuration= animationDuration;
+        mSnapVelocity= snapVelocity;
+        mMaxSwipeThreshold= maxSwipeThreshold;
+        mRefreshRate= refreshRate;
+        mReducedMotion= reducedMotion;
+    }
+
+    /**
+     * Tune for the current display. Animations are longer on physically wider
+     * screens, end on a frame boundary of the refresh rate and are a little
+     * shorter on high refresh rate displays, where the slow tail of the curve
+     * would otherwise take many frames of sub-pixel movement. The system's
+     * animator duration scale is applied, a scale of 0 gives
+     * {@link #forReducedMotion(Context)}.
+     */
+    public static SlideTuning forDisplay(Context context) {
+        final float scale= getAnimatorDurationScale(context);
+        if (scale == 0f) {
+            return forReducedMotion(context);
+        }
+
+        final DisplayMetrics metrics= context.getResources().getDisplayMetrics();
+        final float xdpi= getXdpi(metrics);
+        final float refreshRate= getRefreshRate(context);
+
+        final float widthInches= metrics.widthPixels / xdpi;
+        float duration= BASE_DURATION_MILLIS
+                * (float) Math.sqrt(widthInches / REFERENCE_WIDTH_INCHES);
+        duration= Math.max(MIN_DURATION_MILLIS, Math.min(MAX_DURATION_MILLIS, duration));
+        duration*= .75f + .25f * Math.min(1f, DEFAULT_REFRESH_RATE / refreshRate);
+        duration*= scale;
+
+        // Whole frames, so the last frame isn't spent on a partial step
+        final float frames= Math.max(1, Math.round(duration * refreshRate / 1000f));
+
+        return new SlideTuning(Math.round(frames * 1000f / refreshRate),
+                Math.round(SNAP_VELOCITY_INCHES_PER_SECOND * xdpi),
+                Math.round(MAX_SWIPE_THRESHOLD_INCHES * xdpi), refreshRate, false);
+    }
+
+    /**
+     * Tune for users who turned animations off: the panel jumps to its state
+     * instead of animating and draws without parallax or scaling.
+     */
+    public static SlideTuning forReducedMotion(Context context) {
+        final DisplayMetrics metrics= context.getResources().getDisplayMetrics();
+        final float xdpi= getXdpi(metrics);
+
+        return new SlideTuning(0, Math.round(SNAP_VELOCITY_INCHES_PER_SECOND * xdpi),
+                Math.round(MAX_SWIPE_THRESHOLD_INCHES * xdpi), getRefreshRate(context), true);
+    }
+
+    /*
+     * Some devices report nonsense physical densities, fall back to the
+     * density bucket then.
+     */
+    private static float getXdpi(DisplayMetrics metrics) {
+        final float xdpi= metrics.xdpi;
+        if (xdpi < metrics.densityDpi / 2f || xdpi > metrics.densityDpi * 2f) {
+            return metrics.densityDpi;
+        }
+        return xdpi;
+    }
+
+    private static float getRefreshRate(Context context) {
+        final Display display=
+                ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE))
+                        .getDefaultDisplay();
+        final float refreshRate= display.getRefreshRate();
+        return refreshRate > 0f ? refreshRate : DEFAULT_REFRESH_RATE;
+    }
+
+    private static float getAnimatorDurationScale(Context context) {
+        return Settings.System.getFloat(context.getContentResolver(), ANIMATOR_DURATION_SCALE,
+                1f);
+    }
+
+    public int getAnimationDuration() {
+        return mAnimationDuration;
+    }
+
+    public int getSnapVelocity() {
+        return mSnapVelocity;
+    }
+
+    public int getMaxSwipeThreshold() {
+        return mMaxSwipeThreshold;
+    }
+
+    public float getRefreshRate() {
+        return mRefreshRate;
+    }
+
+    public boolean isReducedMotion() {
+        return mReducedMotion;
+    }
+}
@@ -1,38 +1,358 @@
 
 package com.novationmobile.view;
 
+import java.util.ArrayList;
+
+import android.content.ComponentCallbacks;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentTransaction;
+import android.support.v4.view.AccessibilityDelegateCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
 import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.KeyEvent;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+import android.view.accessibility.AccessibilityManager;
+import android.view.animation.Interpolator;
 import android.widget.FrameLayout;
 
 public class SlidingMenuView extends FrameLayout {
 
+    // View.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS, added in API 19
+    private static final int IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS= 0x00000004;
+    private static final int KITKAT= 19;
+
+    /**
+     * Never use hardware layers while the panel moves.
+     */
+    public static final int LAYER_MODE_NONE= 0;
+
+    /**
+     * Render the main panel from a hardware layer while it is dragged or
+     * snapping.
+     */
+    public static final int LAYER_MODE_MAIN= 1;
+
+    /**
+     * Render both the main panel and the menu from hardware layers while the
+     * panel is dragged or snapping.
+     */
+    public static final int LAYER_MODE_MAIN_AND_MENU= 2;
+
+    /**
+     * Move the main panel by scrolling the sliding container. Works on all API
+     * levels.
+     */
+    public static final int SLIDE_ENGINE_SCROLL= 0;
+
+    /**
+     * Move the main panel by changing its translation, so the panel is neither
+     * laid out nor redrawn while it slides. Needs API 11, older devices fall
+     * back to {@link #SLIDE_ENGINE_SCROLL}.
+     */
+    public static final int SLIDE_ENGINE_TRANSLATION= 1;
+
+    /**
+     * After a drag the panel settles along the animation curve, taking longer
+     * the further it has to travel.
+     */
+    public static final int SETTLE_MODE_DURATION= 0;
+
+    /**
+     * After a drag the panel settles with a damped spring that starts from the
+     * velocity the finger was released with.
+     */
+    public static final int SETTLE_MODE_SPRING= 1;
+
+    /**
+     * A drag can start anywhere on the main panel.
+     */
+    public static final int TOUCH_MODE_FULLSCREEN= 0;
+
+    /**
+     * A drag can only start from the edges of the closed panel, see
+     * {@link #setBezelSize(int)}. All other gestures go straight to the main
+     * panel.
+     */
+    public static final int TOUCH_MODE_BEZEL= 1;
+
+    /**
+     * The panel can't be dragged, only opened and closed through the API. A
+     * tap on the open panel still closes it.
+     */
+    public static final int TOUCH_MODE_NONE= 2;
+
+    public static final float DEFAULT_SPRING_STIFFNESS= 1500f;
+    public static final float DEFAULT_SPRING_DAMPING_RATIO= 1f;
+
+    /**
+     * Keep the menu attached and drawn while the panel is closed.
+     */
+    public static final int MENU_POLICY_KEEP= 0;
+
+    /**
+     * Hide the menu while the panel is closed, so it isn't drawn under the
+     * main panel. The menu fragment is only detached when the system runs low
+     * on memory.
+     */
+    public static final int MENU_POLICY_HIDE= 1;
+
+    /**
+     * Hide the menu while the panel is closed, and detach the menu fragment
+     * once it has been closed for the keep alive timeout, releasing its views.
+     */
+    public static final int MENU_POLICY_DETACH= 2;
+
+    public static final long DEFAULT_MENU_KEEP_ALIVE_MILLIS= 30000;
+
+    public static final int DEFAULT_MAIN_CACHE_SIZE= 3;
+
+    /**
+     * No menu, the panel is closed.
+     */
+    public static final int SIDE_NONE= 0;
+
+    /**
+     * The menu on the left, uncovered by sliding the panel to the right.
+     */
+    public static final int SIDE_LEFT= 1;
+
+    /**
+     * The menu on the right, uncovered by sliding the panel to the left.
+     */
+    public static final int SIDE_RIGHT= 2;
+
     private SlidingView mSlider;
+    /*
+     * The content views. They are either declared in XML, or default
+     * containers for the fragments that are only created once a fragment is
+     * set.
+     */
+    private View mMain;
+    private View mMenu;
+    private View mRightMenu;
+    private float mDeclaredRightMenuWidth;
+
+    private FragmentFactory mMenuFactory;
+    private FragmentManager mMenuManager;
+    private FragmentManager mRightMenuManager;
+
+    /*
+     * Main fragments shown with navigateTo(), by tag, least recently shown
+     * first. All but the last one are detached.
+     */
+    private FragmentManager mMainManager;
+    private ArrayList<String> mMainTags= new ArrayList<String>();
+    private int mMainCacheSize= DEFAULT_MAIN_CACHE_SIZE;
+
+    // Navigation waiting for the panel to settle closed
+    private String mPendingTag;
+    private FragmentFactory mPendingFactory;
+    private FragmentManager mPendingManager;
+
+    private int mMenuPolicy= MENU_POLICY_KEEP;
+    private long mMenuKeepAliveMillis= DEFAULT_MENU_KEEP_ALIVE_MILLIS;
+    private boolean mClipMenu= true;
+
+    private int mScrimColor;
+    private final Paint mScrimPaint= new Paint();
+    private float mMenuParallax;
+    private float mMenuScale= 1f;
+
+    private OnSlideListener mSlideListener;
+    private boolean mSlideDirty;
+
+    private GestureRecorder mGestureRecorder;
+
+    /*
+     * The tuning in use. Unless one is set it follows the display, and is
+     * read again when the configuration changes. Durations and velocities set
+     * directly override it.
+     */
+    private SlideTuning mSlideTuning;
+    private boolean mFollowDisplay= true;
+    private int mAnimationDurationOverride= -1;
+    private int mSnapVelocityOverride= -1;
+
+    /*
+     * The menu that is about to be uncovered. It is drawn in a one pixel strip
+     * below the panel before it is uncovered, so its views are laid out and
+     * recorded for drawing ahead of the first frame that shows them.
+     */
+    private int mRevealSide= SIDE_NONE;
+    private boolean mRevealDrawn;
+    private boolean mRevealTimed;
+
+    private final SlidingView.SlideCallback mSlideCallback= new SlidingView.SlideCallback() {
+        public void onOpening(int side) {
+            if (side == SIDE_LEFT) {
+                ensureMenuFragment();
+                restoreMenu(mMenu, mMenuManager);
+            } else {
+                restoreMenu(mRightMenu, mRightMenuManager);
+            }
+
+            mRevealSide= side;
+            mRevealDrawn= false;
+            mRevealTimed= false;
+            setImportantForAccessibility(side == SIDE_LEFT ? mMenu : mRightMenu, true);
+            invalidate();
+        }
+
+        public void onRevealCancelled() {
+            mRevealSide= SIDE_NONE;
+            hideMenus();
+        }
+
+        public void onSlide(int offset) {
+            // The exposed part of the menu has changed
+            if (mClipMenu || hasSlideEffects()) {
+                invalidate();
+            }
+
+            // Delivered before the next frame is drawn, see mSlideDispatcher
+            mSlideDirty= mSlideListener != null;
+        }
+
+        public void onSettling(int state) {
+            if (mSlideListener != null) {
+                mSlideListener.onSettling(state);
+            }
+        }
+
+        public void onSettled(int state) {
+            if (state == SIDE_NONE) {
+                mRevealSide= SIDE_NONE;
+                hideMenus();
+                commitPendingNavigation(false);
+            }
+
+            // Only what can be seen is traversed and focused
+            setImportantForAccessibility(mMenu, state == SIDE_LEFT);
+            setImportantForAccessibility(mRightMenu, state == SIDE_RIGHT);
+            setImportantForAccessibility(mMain, state == SIDE_NONE);
+            moveFocusInto(state == SIDE_NONE ? mSlider : getMenu(state));
+
+            if (mSlideListener != null) {
+                if (mSlideDirty) {
+                    mSlideDirty= false;
+                    dispatchSlide();
+                }
+                mSlideListener.onSettled(state);
+            }
+        }
+    };
+
+    /*
+     * Coalesces slide callbacks: however often the panel moves between two
+     * frames, the listener is called once before the frame is drawn.
+     */
+    private final ViewTreeObserver.OnPreDrawListener mSlideDispatcher=
+            new ViewTreeObserver.OnPreDrawListener() {
+                public boolean onPreDraw() {
+                    if (mSlideDirty) {
+                        mSlideDirty= false;
+                        dispatchSlide();
+                    }
+                    return true;
+                }
+            };
+
+    /*
+     * Lets accessibility services open and close the menu like a scrolling
+     * container: scrolling forward opens it, scrolling backward closes it.
+     */
+    private final AccessibilityDelegateCompat mAccessibilityDelegate=
+            new AccessibilityDelegateCompat() {
+                @Override
+                public void onInitializeAccessibilityNodeInfo(View host,
+                        AccessibilityNodeInfoCompat info) {
+                    super.onInitializeAccessibilityNodeInfo(host, info);
+                    if (isOpen()) {
+                        info.setScrollable(true);
+                        info.addAction(AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD);
+                    } else if (getDefaultSide() != SIDE_NONE) {
+                        info.setScrollable(true);
+                        info.addAction(AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD);
+                    }
+                }
+
+                @Override
+                public boolean performAccessibilityAction(View host, int action, Bundle args) {
+                    if (super.performAccessibilityAction(host, action, args)) {
+                        return true;
+                    }
+                    if (action == AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD && !isOpen()
+                            && getDefaultSide() != SIDE_NONE) {
+                        animateOpen(getDefaultSide());
+                        return true;
+                    }
+                    if (action == AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD && isOpen()) {
+                        animateClose();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private final Runnable mReleaseMenu= new Runnable() {
+        public void run() {
+            releaseMenus();
+        }
+    };
+
+    // Only created on API 14 and up, where ComponentCallbacks2 exists
+    private ComponentCallbacks mTrimCallbacks;
+
+    private final MessageQueue.IdleHandler mWarmMenu= new MessageQueue.IdleHandler() {
+        public boolean queueIdle() {
+            ensureMenuFragment();
+            return false;
+        }
+    };
 
     public SlidingMenuView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        init();
+        init(attrs, defStyle);
     }
 
     public SlidingMenuView(Context context, AttributeSet attrs) {
         super(context, attrs);
-        init();
+        init(attrs, 0);
     }
 
     public SlidingMenuView(Context context) {
         super(context);
-        init();
+        init(null, 0);
     }
 
-    private void init() {
+    private void init(AttributeSet attrs, int defStyle) {
 
         mSlider= new SlidingView(getContext());
-        LayoutParams layout= new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
-        mSlider.setLayoutParams(layout);
+        mSlider.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT,
+                LayoutParams.MATCH_PARENT));
+        mSlider.setSlideCallback(mSlideCallback);
         mSlider.setClickable(true);
         mSlider.setOnClickListener(new OnClickListener() {
             public void onClick(View v) {
@@ -40,98 +360,1410 @@ public class SlidingMenuView extends FrameLayout {
             }
         });
 
-        FrameLayout menu= new FrameLayout(getContext());
-        menu.setId(R.id.novation__fragment_menu);
-        layout= new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
-        menu.setLayoutParams(layout);
+        addView(mSlider);
+        applyTuning(SlideTuning.forDisplay(getContext()));
+        ViewCompat.setAccessibilityDelegate(this, mAccessibilityDelegate);
+
+        if (attrs == null) {
+            ensureContainers();
+            return;
+        }
 
-        FrameLayout main= new FrameLayout(getContext());
-        main.setId(R.id.novation__fragment_main);
-        layout= new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
-        main.setLayoutParams(layout);
+        final TypedArray a=
+                getContext().obtainStyledAttributes(attrs, R.styleable.SlidingMenuView,
+                        defStyle, 0);
 
-        addView(menu);
-        addView(mSlider);
+        final LayoutInflater inflater= LayoutInflater.from(getContext());
+        int layout= a.getResourceId(R.styleable.SlidingMenuView_novation__mainLayout, 0);
+        if (layout != 0) {
+            setMainContent(inflater.inflate(layout, mSlider, false));
+        }
+        layout= a.getResourceId(R.styleable.SlidingMenuView_novation__menuLayout, 0);
+        if (layout != 0) {
+            setMenuContent(inflater.inflate(layout, this, false));
+        }
+        layout= a.getResourceId(R.styleable.SlidingMenuView_novation__rightMenuLayout, 0);
+        if (layout != 0) {
+            setRightMenuContent(inflater.inflate(layout, this, false));
+        }
+
+        if (a.hasValue(R.styleable.SlidingMenuView_novation__menuWidth)) {
+            setMenuWidth(a.getFloat(R.styleable.SlidingMenuView_novation__menuWidth, 0f));
+        }
+        if (a.hasValue(R.styleable.SlidingMenuView_novation__rightMenuWidth)) {
+            // Only applied once there is a right menu, it may still be declared
+            mDeclaredRightMenuWidth=
+                    a.getFloat(R.styleable.SlidingMenuView_novation__rightMenuWidth, 0f);
+            if (mDeclaredRightMenuWidth > 1f || mDeclaredRightMenuWidth < 0f) {
+                throw new IllegalArgumentException("MenuWidth must be between 0 and 1");
+            }
+            if (mRightMenu != null) {
+                setRightMenuWidth(mDeclaredRightMenuWidth);
+            }
+        }
+        if (a.hasValue(R.styleable.SlidingMenuView_novation__animationDuration)) {
+            setAnimationDuration(a.getInt(R.styleable.SlidingMenuView_novation__animationDuration,
+                    0));
+        }
+        if (a.hasValue(R.styleable.SlidingMenuView_novation__snapVelocity)) {
+            setSnapVelocity(a.getDimensionPixelSize(
+                    R.styleable.SlidingMenuView_novation__snapVelocity, 0));
+        }
+        if (a.hasValue(R.styleable.SlidingMenuView_novation__bezelSize)) {
+            setBezelSize(a.getDimensionPixelSize(R.styleable.SlidingMenuView_novation__bezelSize,
+                    0));
+        }
+        setTouchMode(a.getInt(R.styleable.SlidingMenuView_novation__touchMode,
+                TOUCH_MODE_FULLSCREEN));
+        setSlideEngine(a.getInt(R.styleable.SlidingMenuView_novation__slideEngine,
+                SLIDE_ENGINE_SCROLL));
+
+        a.recycle();
+    }
+
+    /**
+     * Children declared in XML are used as the content directly, without
+     * wrapping them in containers. A child with a layout_gravity of left
+     * becomes the menu, one with right the right menu, and the child without
+     * a horizontal gravity the main panel.
+     */
+    @Override
+    protected void onFinishInflate() {
+        super.onFinishInflate();
+
+        final View[] declared= new View[getChildCount()];
+        int count= 0;
+        for (int i= 0; i < declared.length; i++) {
+            final View child= getChildAt(i);
+            if (child != mSlider && child != mMenu && child != mRightMenu) {
+                declared[count++]= child;
+            }
+        }
+
+        for (int i= 0; i < count; i++) {
+            final View child= declared[i];
+            removeView(child);
+            final int gravity= ((LayoutParams) child.getLayoutParams()).gravity;
+            final int horizontal= gravity == -1 ? 0 : gravity & Gravity.HORIZONTAL_GRAVITY_MASK;
+            if (horizontal == Gravity.LEFT) {
+                setMenuContent(child);
+            } else if (horizontal == Gravity.RIGHT) {
+                setRightMenuContent(child);
+            } else {
+                setMainContent(child);
+            }
+        }
+
+        ensureContainers();
+    }
+
+    /*
+     * The default containers exist from the start, so fragments the fragment
+     * manager restores after a recreation find their container even if the
+     * app doesn't set them again.
+     */
+    private void ensureContainers() {
+        ensureMain();
+        ensureMenu();
+    }
+
+    private void setMainContent(View main) {
+        if (mMain != null) {
+            throw new IllegalStateException("The main panel is already set");
+        }
+        if (main.getId() == View.NO_ID) {
+            main.setId(R.id.novation__fragment_main);
+        }
 
+        mMain= main;
+        setImportantForAccessibility(main, !isOpen());
         mSlider.addView(main);
     }
 
+    private void setMenuContent(View menu) {
+        if (mMenu != null) {
+            throw new IllegalStateException("The menu is already set");
+        }
+        if (menu.getId() == View.NO_ID) {
+            menu.setId(R.id.novation__fragment_menu);
+        }
+        if (mMenuPolicy != MENU_POLICY_KEEP && !isOpen(SIDE_LEFT)) {
+            menu.setVisibility(View.INVISIBLE);
+        }
+
+        mMenu= menu;
+        setImportantForAccessibility(menu, isOpen(SIDE_LEFT));
+
+        // Below the sliding panel
+        addView(menu, indexOfChild(mSlider));
+        mSlider.setLayerMenus(mMenu, mRightMenu);
+    }
+
+    private void setRightMenuContent(View menu) {
+        if (mRightMenu != null) {
+            throw new IllegalStateException("The right menu is already set");
+        }
+        if (menu.getId() == View.NO_ID) {
+            menu.setId(R.id.novation__fragment_menu_right);
+        }
+        if (mMenuPolicy != MENU_POLICY_KEEP && !isOpen(SIDE_RIGHT)) {
+            menu.setVisibility(View.INVISIBLE);
+        }
+
+        final LayoutParams params= (LayoutParams) menu.getLayoutParams();
+        params.gravity= Gravity.RIGHT | (params.gravity == -1 ? 0
+                : params.gravity & Gravity.VERTICAL_GRAVITY_MASK);
+
+        mRightMenu= menu;
+        setImportantForAccessibility(menu, isOpen(SIDE_RIGHT));
+
+        // Below the sliding panel, like the left menu
+        addView(menu, indexOfChild(mSlider));
+
+        if (mDeclaredRightMenuWidth > 0f) {
+            mSlider.setRightSliderWidth(mDeclaredRightMenuWidth);
+        } else if (mSlider.getRightSliderWidth() == 0f) {
+            mSlider.setRightSliderWidth(SlidingView.DEFAULT_SLIDER_WIDTH);
+        }
+        mSlider.setLayerMenus(mMenu, mRightMenu);
+    }
+
+    private void ensureMain() {
+        if (mMain == null) {
+            final FrameLayout main= new FrameLayout(getContext());
+            main.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT,
+                    LayoutParams.MATCH_PARENT));
+            setMainContent(main);
+        }
+    }
+
+    private void ensureMenu() {
+        if (mMenu == null) {
+            final FrameLayout menu= new FrameLayout(getContext());
+            menu.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT,
+                    LayoutParams.MATCH_PARENT));
+            setMenuContent(menu);
+        }
+    }
+
+    private void ensureRightMenu() {
+        if (mRightMenu == null) {
+            final FrameLayout menu= new FrameLayout(getContext());
+            menu.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT,
+                    LayoutParams.MATCH_PARENT, Gravity.RIGHT));
+            setRightMenuContent(menu);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        /*
+         * Size the menu before the children are measured, so a new menu width
+         * or a rotation is picked up in the same layout pass.
+         */
+        if (mMenu != null) {
+            final int menuWidth=
+                    (int) (MeasureSpec.getSize(widthMeasureSpec) * mSlider.getSliderWidth());
+            final ViewGroup.LayoutParams params= mMenu.getLayoutParams();
+            if (params.width != menuWidth) {
+                params.width= menuWidth;
+            }
+        }
+
+        if (mRightMenu != null) {
+            final int rightMenuWidth=
+                    (int) (MeasureSpec.getSize(widthMeasureSpec) * mSlider.getRightSliderWidth());
+            final ViewGroup.LayoutParams rightParams= mRightMenu.getLayoutParams();
+            if (rightParams.width != rightMenuWidth) {
+                rightParams.width= rightMenuWidth;
+            }
+        }
+
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        if (child != mMenu && child != mRightMenu) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+
+        final int offset= mSlider.getSlideOffset();
+        final boolean uncovered= child == mMenu ? offset > 0 : offset < 0;
+        final boolean effects= uncovered && !mSlideTuning.isReducedMotion()
+                && (mMenuParallax > 0f || mMenuScale < 1f);
+        if (!mClipMenu && !effects) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+        final boolean prewarm= mClipMenu && !uncovered
+                && child == (mRevealSide == SIDE_LEFT ? mMenu : mRevealSide == SIDE_RIGHT
+                        ? mRightMenu : null);
+        if (mClipMenu && !uncovered && !prewarm) {
+            return false;
+        }
+
+        final int saveCount= canvas.save();
+
+        if (prewarm) {
+            // The main panel is drawn over this strip
+            final int edge= child == mMenu ? 0 : getWidth() - 1;
+            canvas.clipRect(edge, 0, edge + 1, getHeight());
+            mRevealDrawn= true;
+        } else if (mClipMenu) {
+            // Only draw the strip of the menu that the main panel doesn't cover
+            if (child == mMenu) {
+                canvas.clipRect(0, 0, offset, getHeight());
+            } else {
+                canvas.clipRect(getWidth() + offset, 0, getWidth(), getHeight());
+            }
+        }
+
+        if (effects) {
+            /*
+             * Draw time transforms only, the menu keeps its layout. The menu
+             * trails the panel and grows towards its full size, anchored at
+             * the edge of the screen it is attached to.
+             */
+            final float closed= 1f - mSlider.getSlideFraction();
+            final float edge= child == mMenu ? 0f : getWidth();
+            final float shift= closed * mMenuParallax * child.getWidth();
+            canvas.translate(child == mMenu ? -shift : shift, 0f);
+
+            final float scale= mMenuScale + (1f - mMenuScale) * (1f - closed);
+            canvas.scale(scale, scale, edge, getHeight() / 2f);
+        }
+
+        final boolean result= super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+        return result;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        final int offset= mSlider.getSlideOffset();
+        if (offset != 0 && mRevealSide != SIDE_NONE && !mRevealTimed) {
+            // The first frame that shows the menu
+            mRevealTimed= true;
+            final long start= System.nanoTime();
+            super.dispatchDraw(canvas);
+            mSlider.recordFirstReveal((System.nanoTime() - start) / 1000, mRevealDrawn);
+        } else {
+            super.dispatchDraw(canvas);
+        }
+
+        // Dim the main panel as the menu is uncovered
+        if (offset != 0 && Color.alpha(mScrimColor) != 0) {
+            final int alpha= Math.round(Color.alpha(mScrimColor) * mSlider.getSlideFraction());
+            mScrimPaint.setColor(alpha << 24 | mScrimColor & 0xffffff);
+            canvas.drawRect(offset, 0, getWidth() + offset, getHeight(), mScrimPaint);
+        }
+    }
+
     @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        super.onLayout(changed, left, top, right, bottom);
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        final boolean handled= super.dispatchTouchEvent(ev);
+        if (mGestureRecorder != null) {
+            mGestureRecorder.record(this, ev);
+        }
+        return handled;
+    }
 
-        View menu= findViewById(R.id.novation__fragment_menu);
-        menu.getLayoutParams().width= (int) (getWidth() * mSlider.getSliderWidth());
-        menu.invalidate();
+    private boolean hasSlideEffects() {
+        return Color.alpha(mScrimColor) != 0 || mMenuParallax > 0f || mMenuScale < 1f;
     }
 
     public void setMainFragment(Fragment fragment, FragmentManager manager) {
+        mMainManager= manager;
         setMainFragment(fragment, manager.beginTransaction());
     }
 
+    /**
+     * Replace the main fragment. Fragments cached by
+     * {@link #navigateTo(String, FragmentFactory, FragmentManager)} are
+     * removed in the same transaction.
+     */
     public void setMainFragment(Fragment fragment, FragmentTransaction transaction) {
-        transaction.replace(R.id.novation__fragment_main, fragment)
+        ensureMain();
+        cancelPendingNavigation();
+        if (mMainManager != null) {
+            for (String tag : mMainTags) {
+                final Fragment cached= mMainManager.findFragmentByTag(tag);
+                if (cached != null) {
+                    transaction.remove(cached);
+                }
+            }
+        }
+        mMainTags.clear();
+        transaction.replace(mMain.getId(), fragment)
                 .commit();
     }
 
-    public Fragment getMainFragment(FragmentManager manager) {
-        return manager.findFragmentById(R.id.novation__fragment_main);
-    }
+    /**
+     * Show the main fragment with a tag, for switching screens from the
+     * menu. The fragment shown before is detached instead of destroyed, up to
+     * the main cache size, so navigating back to it attaches the same
+     * instance with its state instead of creating a new one. Its views are
+     * still released on detach and created again on attach. If a menu is open it is closed first, and the
+     * fragments are only switched once the panel has settled, so the
+     * transaction doesn't run during the close animation.
+     * 
+     * @param tag identifies the fragment in the cache and the fragment
+     *            manager
+     * @param factory creates the fragment if it isn't cached
+     * @param manager the fragment manager to add the fragment to
+     */
+    public void navigateTo(String tag, FragmentFactory factory, FragmentManager manager) {
+        if (tag == null) {
+            throw new IllegalArgumentException("Navigation needs a tag");
+        }
+        ensureMain();
 
-    public void setMenuFragment(Fragment fragment, FragmentManager manager) {
-        setMenuFragment(fragment, manager.beginTransaction());
+        mPendingTag= tag;
+        mPendingFactory= factory;
+        mPendingManager= manager;
+
+        if (isOpen()) {
+            animateClose();
+        } else if (getSlideOffset() == 0) {
+            commitPendingNavigation(false);
+        }
+        // Otherwise the panel is still moving and commits once it settles
     }
 
-    public void setMenuFragment(Fragment fragment, FragmentTransaction transaction) {
-        transaction.replace(R.id.novation__fragment_menu, fragment)
-                .commit();
+    /**
+     * @param allowStateLoss commit even if the fragment manager may already
+     *            have saved its state
+     */
+    private void commitPendingNavigation(boolean allowStateLoss) {
+        if (mPendingTag == null) {
+            return;
+        }
+
+        final String tag= mPendingTag;
+        final FragmentFactory factory= mPendingFactory;
+        final FragmentManager manager= mPendingManager;
+        cancelPendingNavigation();
+        mMainManager= manager;
+
+        final Fragment current= manager.findFragmentById(mMain.getId());
+        final Fragment next= manager.findFragmentByTag(tag);
+        if (current != null && current == next && !next.isDetached()) {
+            mMainTags.remove(tag);
+            mMainTags.add(tag);
+            return;
+        }
+
+        final FragmentTransaction transaction= manager.beginTransaction();
+        if (current != null && current != next && !current.isDetached()) {
+            if (mMainCacheSize > 0 && mMainTags.contains(current.getTag())) {
+                transaction.detach(current);
+            } else {
+                mMainTags.remove(current.getTag());
+                transaction.remove(current);
+            }
+        }
+        if (next != null) {
+            transaction.attach(next);
+        } else {
+            transaction.add(mMain.getId(), factory.createFragment(), tag);
+        }
+
+        mMainTags.remove(tag);
+        mMainTags.add(tag);
+
+        // Least recently shown first out, the shown fragment isn't counted
+        while (mMainTags.size() > mMainCacheSize + 1) {
+            final Fragment evicted= manager.findFragmentByTag(mMainTags.remove(0));
+            if (evicted != null) {
+                transaction.remove(evicted);
+            }
+        }
+
+        if (allowStateLoss) {
+            transaction.commitAllowingStateLoss();
+        } else {
+            transaction.commit();
+        }
     }
 
-    public Fragment getMenuFragment(FragmentManager manager) {
-        return manager.findFragmentById(R.id.novation__fragment_menu);
+    private void cancelPendingNavigation() {
+        mPendingTag= null;
+        mPendingFactory= null;
+        mPendingManager= null;
     }
 
     /**
-     * Set the width of the menu.
-     * 
-     * @param menuWidth width relative to the parent between 0 and 1
+     * Set how many main fragments
+     * {@link #navigateTo(String, FragmentFactory, FragmentManager)} keeps
+     * detached besides the one shown. A smaller size takes effect with the
+     * next navigation, 0 destroys fragments when navigating away.
      */
-    public void setMenuWidth(float menuWidth) {
-        if (menuWidth > 1f || menuWidth < 0f) {
-            throw new IllegalArgumentException("MenuWidth must be between 0 and 1");
+    public void setMainCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative");
         }
-        mSlider.setSliderWidth(menuWidth);
+        mMainCacheSize= size;
     }
 
-    public float getMenuWidth() {
-        return mSlider.getSliderWidth();
+    public int getMainCacheSize() {
+        return mMainCacheSize;
     }
 
-    public boolean isOpen() {
-        return mSlider.isOpen();
+    public Fragment getMainFragment(FragmentManager manager) {
+        return mMain != null ? manager.findFragmentById(mMain.getId()) : null;
     }
 
-    public void open() {
-        mSlider.open();
+    public void setMenuFragment(Fragment fragment, FragmentManager manager) {
+        setMenuFragment(fragment, manager.beginTransaction());
+        mMenuManager= manager;
     }
 
-    public void animateOpen() {
-        mSlider.animateOpen();
+    public void setMenuFragment(Fragment fragment, FragmentTransaction transaction) {
+        mMenuFactory= null;
+        mMenuManager= null;
+        ensureMenu();
+        transaction.replace(mMenu.getId(), fragment)
+                .commit();
     }
 
-    public void close() {
-        mSlider.close();
+    public Fragment getMenuFragment(FragmentManager manager) {
+        return mMenu != null ? manager.findFragmentById(mMenu.getId()) : null;
     }
 
-    public void animateClose() {
-        mSlider.animateClose();
+    public void setRightMenuFragment(Fragment fragment, FragmentManager manager) {
+        setRightMenuFragment(fragment, manager.beginTransaction());
+        mRightMenuManager= manager;
     }
 
-    public void toggle() {
-        mSlider.toggle();
+    /**
+     * Set the menu on the right. The right menu container is only added once
+     * a right menu is set.
+     */
+    public void setRightMenuFragment(Fragment fragment, FragmentTransaction transaction) {
+        ensureRightMenu();
+        mRightMenuManager= null;
+        transaction.replace(mRightMenu.getId(), fragment)
+                .commit();
     }
 
-    public void animateToggle() {
-        mSlider.animateToggle();
+    public Fragment getRightMenuFragment(FragmentManager manager) {
+        return mRightMenu != null ? manager.findFragmentById(mRightMenu.getId()) : null;
+    }
+
+    /**
+     * Set the menu lazily. The fragment is only created when the menu starts
+     * to open, either through a drag or through {@link #open()} and
+     * {@link #animateOpen()}, so its views aren't inflated during startup.
+     * 
+     * @param factory creates the menu fragment
+     * @param manager the fragment manager to add the menu fragment to
+     * @param warmOnIdle also create the menu as soon as the main thread is
+     *            idle, so it is ready before the user reaches for it
+     */
+    public void setMenuFragment(FragmentFactory factory, FragmentManager manager,
+            boolean warmOnIdle) {
+        mMenuFactory= factory;
+        mMenuManager= manager;
+        ensureMenu();
+
+        if (warmOnIdle) {
+            Looper.myQueue().addIdleHandler(mWarmMenu);
+        }
+    }
+
+    private void ensureMenuFragment() {
+        if (mMenuFactory == null) {
+            return;
+        }
+
+        final FragmentFactory factory= mMenuFactory;
+        mMenuFactory= null;
+        Looper.myQueue().removeIdleHandler(mWarmMenu);
+
+        /*
+         * Not executed right away: this runs from measure passes and touch
+         * events, which may already be inside the fragment manager. The
+         * manager runs the transaction with the next message.
+         */
+        mMenuManager.beginTransaction()
+                .replace(mMenu.getId(), factory.createFragment())
+                .commit();
+    }
+
+    /**
+     * Choose what happens to the menu while the panel is closed. Detaching
+     * the menu fragment needs the fragment manager, so it only applies to
+     * menus set with a FragmentManager.
+     * 
+     * @param menuPolicy {@link #MENU_POLICY_KEEP}, {@link #MENU_POLICY_HIDE}
+     *            or {@link #MENU_POLICY_DETACH}
+     */
+    public void setMenuPolicy(int menuPolicy) {
+        if (menuPolicy < MENU_POLICY_KEEP || menuPolicy > MENU_POLICY_DETACH) {
+            throw new IllegalArgumentException("Unknown menu policy " + menuPolicy);
+        }
+        mMenuPolicy= menuPolicy;
+
+        if (menuPolicy == MENU_POLICY_KEEP) {
+            restoreMenus();
+        } else if (!isOpen()) {
+            hideMenus();
+        }
+    }
+
+    public int getMenuPolicy() {
+        return mMenuPolicy;
+    }
+
+    /**
+     * Set how long the menu fragment is kept after the panel closed or the
+     * system asked to trim memory, before its views are released.
+     */
+    public void setMenuKeepAlive(long keepAliveMillis) {
+        if (keepAliveMillis < 0) {
+            throw new IllegalArgumentException("Keep alive must not be negative");
+        }
+        mMenuKeepAliveMillis= keepAliveMillis;
+    }
+
+    public long getMenuKeepAlive() {
+        return mMenuKeepAliveMillis;
+    }
+
+    private void hideMenus() {
+        /*
+         * Before API 19 a view can't hide its descendants from accessibility
+         * services, so a covered menu is hidden while one is running.
+         */
+        if (mMenuPolicy != MENU_POLICY_KEEP
+                || Build.VERSION.SDK_INT < KITKAT && isAccessibilityEnabled()) {
+            if (mMenu != null) {
+                mMenu.setVisibility(View.INVISIBLE);
+            }
+            if (mRightMenu != null) {
+                mRightMenu.setVisibility(View.INVISIBLE);
+            }
+        }
+        if (mMenuPolicy == MENU_POLICY_DETACH) {
+            removeCallbacks(mReleaseMenu);
+            postDelayed(mReleaseMenu, mMenuKeepAliveMillis);
+        }
+    }
+
+    private boolean isAccessibilityEnabled() {
+        return ((AccessibilityManager) getContext().getSystemService(
+                Context.ACCESSIBILITY_SERVICE)).isEnabled();
+    }
+
+    private static void setImportantForAccessibility(View view, boolean important) {
+        if (view == null) {
+            return;
+        }
+        ViewCompat.setImportantForAccessibility(view, important
+                ? ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO
+                : Build.VERSION.SDK_INT >= KITKAT ? IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS
+                        : ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO);
+    }
+
+    /**
+     * @return the menu of a side, or null when it has no content
+     */
+    private View getMenu(int side) {
+        return side == SIDE_LEFT ? mMenu : side == SIDE_RIGHT ? mRightMenu : null;
+    }
+
+    /**
+     * @return the side opened by the keyboard and accessibility actions
+     */
+    private int getDefaultSide() {
+        return mMenu != null ? SIDE_LEFT : mRightMenu != null ? SIDE_RIGHT : SIDE_NONE;
+    }
+
+    /**
+     * Keep keyboard focus in what can be seen: the open menu while a menu is
+     * open, the main panel while closed.
+     */
+    @Override
+    public void addFocusables(ArrayList<View> views, int direction, int focusableMode) {
+        final View menu= getMenu(getOpenSide());
+        if (menu != null) {
+            menu.addFocusables(views, direction, focusableMode);
+        } else if (isOpen()) {
+            super.addFocusables(views, direction, focusableMode);
+        } else {
+            mSlider.addFocusables(views, direction, focusableMode);
+        }
+    }
+
+    private void moveFocusInto(View target) {
+        if (target == null || !hasFocus()) {
+            return;
+        }
+
+        // Only move the focus if it is left behind in a hidden part
+        for (ViewParent parent= findFocus().getParent(); parent != null; parent=
+                parent.getParent()) {
+            if (parent == target) {
+                return;
+            }
+        }
+        target.requestFocus();
+    }
+
+    /**
+     * Keys the content doesn't handle drive the menu through the same paths as
+     * the API: back closes an open menu, and moving the focus past the edge
+     * of the screen with the d-pad opens or closes the menu on that side.
+     */
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (super.dispatchKeyEvent(event)) {
+            return true;
+        }
+
+        switch (event.getKeyCode()) {
+            case KeyEvent.KEYCODE_BACK:
+                if (!isOpen()) {
+                    return false;
+                }
+                if (event.getAction() == KeyEvent.ACTION_UP && !event.isCanceled()) {
+                    animateClose();
+                }
+                return true;
+            case KeyEvent.KEYCODE_DPAD_LEFT:
+                return event.getAction() == KeyEvent.ACTION_DOWN
+                        && moveWithKey(View.FOCUS_LEFT, SIDE_LEFT, SIDE_RIGHT);
+            case KeyEvent.KEYCODE_DPAD_RIGHT:
+                return event.getAction() == KeyEvent.ACTION_DOWN
+                        && moveWithKey(View.FOCUS_RIGHT, SIDE_RIGHT, SIDE_LEFT);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param direction the direction the focus moves
+     * @param opens the side whose menu is opened by moving that way
+     * @param closes the side whose menu is closed by moving that way
+     * @return false if the focus can move instead
+     */
+    private boolean moveWithKey(int direction, int opens, int closes) {
+        final View focused= findFocus();
+        if (focused != null && focusSearch(focused, direction) != null) {
+            return false;
+        }
+
+        if (isOpen(closes)) {
+            animateClose();
+            return true;
+        }
+        if (!isOpen() && getMenu(opens) != null) {
+            animateOpen(opens);
+            return true;
+        }
+        return false;
+    }
+
+    private void releaseMenus() {
+        if (isOpen()) {
+            return;
+        }
+
+        releaseMenu(mMenu, mMenuManager);
+        releaseMenu(mRightMenu, mRightMenuManager);
+    }
+
+    private void releaseMenu(View container, FragmentManager manager) {
+        if (container == null || manager == null) {
+            return;
+        }
+
+        final Fragment menu= manager.findFragmentById(container.getId());
+        if (menu != null && !menu.isDetached()) {
+            // The app may already be in the background with its state saved
+            manager.beginTransaction().detach(menu).commitAllowingStateLoss();
+        }
+    }
+
+    private void restoreMenus() {
+        restoreMenu(mMenu, mMenuManager);
+        restoreMenu(mRightMenu, mRightMenuManager);
+    }
+
+    private void restoreMenu(View container, FragmentManager manager) {
+        removeCallbacks(mReleaseMenu);
+        if (container == null) {
+            return;
+        }
+
+        container.setVisibility(View.VISIBLE);
+
+        if (manager == null) {
+            return;
+        }
+
+        // Committed without executing it, like the lazy menu
+        final Fragment menu= manager.findFragmentById(container.getId());
+        if (menu != null && menu.isDetached()) {
+            manager.beginTransaction().attach(menu).commit();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mFollowDisplay) {
+            // Animation settings may have changed while detached
+            applyTuning(SlideTuning.forDisplay(getContext()));
+        }
+        getViewTreeObserver().addOnPreDrawListener(mSlideDispatcher);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            if (mTrimCallbacks == null) {
+                mTrimCallbacks= new TrimCallbacks(this);
+            }
+            getContext().registerComponentCallbacks(mTrimCallbacks);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnPreDrawListener(mSlideDispatcher);
+        removeCallbacks(mReleaseMenu);
+        Looper.myQueue().removeIdleHandler(mWarmMenu);
+        if (mTrimCallbacks != null) {
+            getContext().unregisterComponentCallbacks(mTrimCallbacks);
+        }
+
+        // The fragment manager may not outlive the window
+        cancelPendingNavigation();
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (mFollowDisplay) {
+            applyTuning(SlideTuning.forDisplay(getContext()));
+        }
+    }
+
+    /**
+     * Set how the panel moves. By default the tuning follows the display, see
+     * {@link SlideTuning#forDisplay(Context)}, and is updated when the
+     * configuration changes.
+     * 
+     * @param tuning the tuning to keep, or null to follow the display again
+     */
+    public void setSlideTuning(SlideTuning tuning) {
+        mFollowDisplay= tuning == null;
+        applyTuning(tuning != null ? tuning : SlideTuning.forDisplay(getContext()));
+    }
+
+    public SlideTuning getSlideTuning() {
+        return mSlideTuning;
+    }
+
+    private void applyTuning(SlideTuning tuning) {
+        mSlideTuning= tuning;
+        mSlider.setTuning(tuning);
+        if (mAnimationDurationOverride >= 0) {
+            mSlider.setAnimationDuration(mAnimationDurationOverride);
+        }
+        if (mSnapVelocityOverride >= 0) {
+            mSlider.setSnapVelocity(mSnapVelocityOverride);
+        }
+        invalidate();
+    }
+
+    /**
+     * Saves which menu is open and the menu widths. Like any view state this
+     * is only saved when the view has an id.
+     */
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState state= new SavedState(super.onSaveInstanceState());
+        state.openSide= getOpenSide();
+        state.menuWidth= getMenuWidth();
+        state.rightMenuWidth= mRightMenu != null ? getRightMenuWidth() : 0f;
+
+        /*
+         * Don't lose a navigation waiting for the panel to close. Views are
+         * saved before the fragments, so the manager still runs and saves it,
+         * unless this view is saved with a fragment's views.
+         */
+        commitPendingNavigation(true);
+        state.mainTags= new ArrayList<String>(mMainTags);
+        Looper.myQueue().removeIdleHandler(mWarmMenu);
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        final SavedState saved= (SavedState) state;
+        super.onRestoreInstanceState(saved.getSuperState());
+
+        /*
+         * State is restored before the first layout, so the widths and the
+         * open menu are applied in the first measure pass, without closing the
+         * panel first or animating it.
+         */
+        setMenuWidth(saved.menuWidth);
+        if (mRightMenu != null && saved.rightMenuWidth > 0f) {
+            setRightMenuWidth(saved.rightMenuWidth);
+        }
+        mSlider.restoreState(saved.openSide);
+
+        // The fragment manager restores the cached fragments themselves
+        mMainTags= saved.mainTags;
+        if (mMainManager == null && getContext() instanceof FragmentActivity) {
+            // The activity's is the only fragment manager, so it holds them
+            mMainManager= ((FragmentActivity) getContext()).getSupportFragmentManager();
+        }
+    }
+
+    /**
+     * Set the width of the menu.
+     * 
+     * @param menuWidth width relative to the parent between 0 and 1
+     */
+    public void setMenuWidth(float menuWidth) {
+        if (menuWidth > 1f || menuWidth < 0f) {
+            throw new IllegalArgumentException("MenuWidth must be between 0 and 1");
+        }
+        mSlider.setSliderWidth(menuWidth);
+    }
+
+    public float getMenuWidth() {
+        return mSlider.getSliderWidth();
+    }
+
+    /**
+     * Set the width of the right menu.
+     * 
+     * @param menuWidth width relative to the parent between 0 and 1
+     */
+    public void setRightMenuWidth(float menuWidth) {
+        if (menuWidth > 1f || menuWidth < 0f) {
+            throw new IllegalArgumentException("MenuWidth must be between 0 and 1");
+        }
+        ensureRightMenu();
+        mSlider.setRightSliderWidth(menuWidth);
+    }
+
+    public float getRightMenuWidth() {
+        return mSlider.getRightSliderWidth();
+    }
+
+    /**
+     * Opt in to hardware layers while the panel is dragged or animated.
+     * Layers are only used on hardware accelerated windows (API 11+).
+     * 
+     * @param layerMode one of {@link #LAYER_MODE_NONE},
+     *            {@link #LAYER_MODE_MAIN} or {@link #LAYER_MODE_MAIN_AND_MENU}
+     */
+    public void setLayerMode(int layerMode) {
+        if (layerMode < LAYER_MODE_NONE || layerMode > LAYER_MODE_MAIN_AND_MENU) {
+            throw new IllegalArgumentException("Unknown layer mode " + layerMode);
+        }
+        mSlider.setLayerMode(layerMode);
+    }
+
+    public int getLayerMode() {
+        return mSlider.getLayerMode();
+    }
+
+    public void setOnLayerFramesListener(OnLayerFramesListener listener) {
+        mSlider.setOnLayerFramesListener(listener);
+    }
+
+    /**
+     * Select how the main panel is moved. Both engines share the same
+     * open/close API and touch handling.
+     * 
+     * @param slideEngine {@link #SLIDE_ENGINE_SCROLL} or
+     *            {@link #SLIDE_ENGINE_TRANSLATION}
+     */
+    public void setSlideEngine(int slideEngine) {
+        if (slideEngine != SLIDE_ENGINE_SCROLL && slideEngine != SLIDE_ENGINE_TRANSLATION) {
+            throw new IllegalArgumentException("Unknown slide engine " + slideEngine);
+        }
+        mSlider.setSlideEngine(slideEngine);
+    }
+
+    public int getSlideEngine() {
+        return mSlider.getSlideEngine();
+    }
+
+    /**
+     * Set the curve used when the menu opens or closes. Pass null to restore
+     * the default.
+     */
+    public void setInterpolator(Interpolator interpolator) {
+        mSlider.setInterpolator(interpolator);
+    }
+
+    public Interpolator getInterpolator() {
+        return mSlider.getInterpolator();
+    }
+
+    /**
+     * Set how long a full open or close animation takes. Shorter distances,
+     * like settling after a drag, take proportionally less. This overrides
+     * the duration of the tuning.
+     * 
+     * @param duration duration in milliseconds
+     */
+    public void setAnimationDuration(int duration) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Duration must not be negative");
+        }
+        mAnimationDurationOverride= duration;
+        mSlider.setAnimationDuration(duration);
+    }
+
+    public int getAnimationDuration() {
+        return mSlider.getAnimationDuration();
+    }
+
+    /**
+     * Set how fast a drag must be released to fling the panel open or closed
+     * instead of settling on the nearest state. This overrides the velocity
+     * of the tuning.
+     * 
+     * @param velocity velocity in pixels per second
+     */
+    public void setSnapVelocity(int velocity) {
+        if (velocity < 0) {
+            throw new IllegalArgumentException("Velocity must not be negative");
+        }
+        mSnapVelocityOverride= velocity;
+        mSlider.setSnapVelocity(velocity);
+    }
+
+    public int getSnapVelocity() {
+        return mSlider.getSnapVelocity();
+    }
+
+    /**
+     * Select where a drag of the panel can start. Gestures that can't drag the
+     * panel are left to the main panel from their down event on.
+     * 
+     * @param touchMode {@link #TOUCH_MODE_FULLSCREEN}, {@link #TOUCH_MODE_BEZEL}
+     *            or {@link #TOUCH_MODE_NONE}
+     */
+    public void setTouchMode(int touchMode) {
+        if (touchMode < TOUCH_MODE_FULLSCREEN || touchMode > TOUCH_MODE_NONE) {
+            throw new IllegalArgumentException("Unknown touch mode " + touchMode);
+        }
+        mSlider.setTouchMode(touchMode);
+    }
+
+    public int getTouchMode() {
+        return mSlider.getTouchMode();
+    }
+
+    /**
+     * Set the width of the edge strips a drag can start from in
+     * {@link #TOUCH_MODE_BEZEL}. The default is 24dp.
+     * 
+     * @param bezelSize width in pixels
+     */
+    public void setBezelSize(int bezelSize) {
+        if (bezelSize < 0) {
+            throw new IllegalArgumentException("Bezel size must not be negative");
+        }
+        mSlider.setBezelSize(bezelSize);
+    }
+
+    public int getBezelSize() {
+        return mSlider.getBezelSize();
+    }
+
+    /**
+     * Select how the panel settles after the user lets go of it. Animations
+     * started through the open and close methods always use the animation
+     * curve.
+     * 
+     * @param settleMode {@link #SETTLE_MODE_DURATION} or
+     *            {@link #SETTLE_MODE_SPRING}
+     */
+    public void setSettleMode(int settleMode) {
+        if (settleMode != SETTLE_MODE_DURATION && settleMode != SETTLE_MODE_SPRING) {
+            throw new IllegalArgumentException("Unknown settle mode " + settleMode);
+        }
+        mSlider.setSettleMode(settleMode);
+    }
+
+    public int getSettleMode() {
+        return mSlider.getSettleMode();
+    }
+
+    /**
+     * Set the stiffness of the settle spring. Higher values settle faster.
+     * 
+     * @param stiffness stiffness for a unit mass, must be positive
+     */
+    public void setSpringStiffness(float stiffness) {
+        if (stiffness <= 0f) {
+            throw new IllegalArgumentException("Stiffness must be positive");
+        }
+        mSlider.setSpringStiffness(stiffness);
+    }
+
+    public float getSpringStiffness() {
+        return mSlider.getSpringStiffness();
+    }
+
+    /**
+     * Set the damping ratio of the settle spring. 1 settles as fast as
+     * possible without overshooting, lower values arrive faster.
+     * 
+     * @param dampingRatio damping ratio, must be positive
+     */
+    public void setSpringDampingRatio(float dampingRatio) {
+        if (dampingRatio <= 0f) {
+            throw new IllegalArgumentException("Damping ratio must be positive");
+        }
+        mSlider.setSpringDampingRatio(dampingRatio);
+    }
+
+    public float getSpringDampingRatio() {
+        return mSlider.getSpringDampingRatio();
+    }
+
+    public void setOnSnapFinishedListener(OnSnapFinishedListener listener) {
+        mSlider.setOnSnapFinishedListener(listener);
+    }
+
+    /**
+     * Receive touch latency, drag frame, animation and settle metrics. Events
+     * are batched and delivered after the gesture or animation they belong
+     * to. Nothing is recorded while no listener is set.
+     */
+    public void setOnSlideMetricsListener(OnSlideMetricsListener listener) {
+        mSlider.setOnSlideMetricsListener(listener);
+    }
+
+    /**
+     * Only draw the part of the menu that isn't covered by the main panel.
+     * This is on by default and assumes the main panel is opaque; turn it off
+     * when the menu should show through a translucent main panel.
+     */
+    public void setClipMenu(boolean clipMenu) {
+        mClipMenu= clipMenu;
+        invalidate();
+    }
+
+    public boolean isClipMenu() {
+        return mClipMenu;
+    }
+
+    /**
+     * Dim the main panel while a menu is uncovered. The scrim is drawn over
+     * the main panel and fades in with the slide fraction, reaching the alpha
+     * of the color when the menu is fully open. Transparent, the default,
+     * turns the scrim off.
+     */
+    public void setScrimColor(int color) {
+        mScrimColor= color;
+        invalidate();
+    }
+
+    public int getScrimColor() {
+        return mScrimColor;
+    }
+
+    /**
+     * Let the menu trail the main panel while it is uncovered.
+     * 
+     * @param parallax how far the closed menu is shifted outwards, relative
+     *            to its width, between 0 (off, the default) and 1
+     */
+    public void setMenuParallax(float parallax) {
+        if (parallax > 1f || parallax < 0f) {
+            throw new IllegalArgumentException("Parallax must be between 0 and 1");
+        }
+        mMenuParallax= parallax;
+        invalidate();
+    }
+
+    public float getMenuParallax() {
+        return mMenuParallax;
+    }
+
+    /**
+     * Let the menu grow to its full size while it is uncovered.
+     * 
+     * @param scale scale of the closed menu between 0 and 1, where 1 (the
+     *            default) turns scaling off
+     */
+    public void setMenuScale(float scale) {
+        if (scale > 1f || scale < 0f) {
+            throw new IllegalArgumentException("Scale must be between 0 and 1");
+        }
+        mMenuScale= scale;
+        invalidate();
+    }
+
+    public float getMenuScale() {
+        return mMenuScale;
+    }
+
+    public void setOnMenuStateChangedListener(OnMenuStateChangedListener listener) {
+        mSlider.setOnMenuStateChangedListener(listener);
+    }
+
+    /**
+     * Record the touch events this view receives, for replay with
+     * {@link GestureReplayer}. Meant for debug builds. Pass null to stop
+     * recording, closing the recorder is left to the caller.
+     */
+    public void setGestureRecorder(GestureRecorder recorder) {
+        mGestureRecorder= recorder;
+    }
+
+    /**
+     * Follow the position of the panel. Slide updates are coalesced to at
+     * most one call per frame, made just before the frame is drawn.
+     */
+    public void setOnSlideListener(OnSlideListener listener) {
+        mSlideListener= listener;
+        mSlideDirty= false;
+    }
+
+    private void dispatchSlide() {
+        final int offset= mSlider.getSlideOffset();
+        final int side= offset > 0 ? SIDE_LEFT : offset < 0 ? SIDE_RIGHT : SIDE_NONE;
+        mSlideListener.onSlide(side, mSlider.getSlideFraction(), offset);
+    }
+
+    /**
+     * @return how far the main panel is moved to the right in pixels, negative
+     *         while the right menu shows
+     */
+    public int getSlideOffset() {
+        return mSlider.getSlideOffset();
+    }
+
+    /**
+     * @return how far the visible menu is uncovered, between 0 and 1
+     */
+    public float getSlideFraction() {
+        return mSlider.getSlideFraction();
+    }
+
+    public boolean isOpen() {
+        return mSlider.isOpen();
+    }
+
+    /**
+     * @param side {@link #SIDE_LEFT} or {@link #SIDE_RIGHT}
+     */
+    public boolean isOpen(int side) {
+        return mSlider.isOpen(side);
+    }
+
+    /**
+     * @return the side whose menu is open, or {@link #SIDE_NONE}
+     */
+    public int getOpenSide() {
+        return mSlider.getState();
+    }
+
+    public void open() {
+        mSlider.open();
+    }
+
+    public void open(int side) {
+        mSlider.open(checkSide(side));
+    }
+
+    public void animateOpen() {
+        mSlider.animateOpen();
+    }
+
+    public void animateOpen(int side) {
+        mSlider.animateOpen(checkSide(side));
+    }
+
+    public void close() {
+        mSlider.close();
+    }
+
+    public void animateClose() {
+        mSlider.animateClose();
+    }
+
+    public void toggle() {
+        mSlider.toggle();
+    }
+
+    public void toggle(int side) {
+        mSlider.toggle(checkSide(side));
+    }
+
+    public void animateToggle() {
+        mSlider.animateToggle();
+    }
+
+    public void animateToggle(int side) {
+        mSlider.animateToggle(checkSide(side));
+    }
+
+    private int checkSide(int side) {
+        if (side != SIDE_LEFT && side != SIDE_RIGHT) {
+            throw new IllegalArgumentException("Side must be SIDE_LEFT or SIDE_RIGHT");
+        }
+        return side;
+    }
+
+    /*
+     * Releases the menu when the system runs low on memory, unless the menu
+     * policy keeps it. A class of its own so ComponentCallbacks2 is only
+     * loaded on API levels that have it.
+     */
+    private static class TrimCallbacks implements ComponentCallbacks2 {
+        // ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, added in API 16
+        private static final int TRIM_MEMORY_RUNNING_LOW= 10;
+
+        private final SlidingMenuView mView;
+
+        TrimCallbacks(SlidingMenuView view) {
+            mView= view;
+        }
+
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW && mView.mMenuPolicy != MENU_POLICY_KEEP
+                    && !mView.isOpen()) {
+                mView.removeCallbacks(mView.mReleaseMenu);
+                mView.postDelayed(mView.mReleaseMenu, mView.mMenuKeepAliveMillis);
+            }
+        }
+
+        public void onLowMemory() {
+            if (mView.mMenuPolicy != MENU_POLICY_KEEP && !mView.isOpen()) {
+                mView.releaseMenus();
+            }
+        }
+
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    }
+
+    static class SavedState extends BaseSavedState {
+        int openSide;
+        float menuWidth;
+        float rightMenuWidth;
+        ArrayList<String> mainTags;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            openSide= in.readInt();
+            menuWidth= in.readFloat();
+            rightMenuWidth= in.readFloat();
+            mainTags= in.createStringArrayList();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(openSide);
+            out.writeFloat(menuWidth);
+            out.writeFloat(rightMenuWidth);
+            out.writeStringList(mainTags);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR=
+                new Parcelable.Creator<SavedState>() {
+                    public SavedState createFromParcel(Parcel in) {
+                        return new SavedState(in);
+                    }
+
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                };
+    }
+
+    public interface OnLayerFramesListener {
+        /**
+         * Called when the layers are dropped after a drag or snap.
+         * 
+         * @param frames number of frames that were composited from the layer
+         *            instead of redrawing the main panel
+         */
+        public void onLayerFrames(int frames);
+    }
+
+    public interface OnMenuStateChangedListener {
+        /**
+         * Called when a menu starts to open or close.
+         * 
+         * @param side {@link #SIDE_LEFT} or {@link #SIDE_RIGHT}
+         * @param open whether that menu is opening or closing
+         */
+        public void onMenuStateChanged(int side, boolean open);
+    }
+
+    public interface OnSlideListener {
+        /**
+         * Called at most once per frame while the panel moves.
+         * 
+         * @param side the side whose menu is showing, or {@link #SIDE_NONE}
+         * @param fraction how far that menu is uncovered, between 0 and 1
+         * @param offset how far the main panel is moved to the right in
+         *            pixels, negative while the right menu shows
+         */
+        public void onSlide(int side, float fraction, int offset);
+
+        /**
+         * Called when the panel starts to animate towards a state, after a
+         * drag or through the open and close methods.
+         * 
+         * @param state the side that is opening, or {@link #SIDE_NONE} when
+         *            closing
+         */
+        public void onSettling(int state);
+
+        /**
+         * Called when the panel has come to rest.
+         * 
+         * @param state the side that is open, or {@link #SIDE_NONE} when
+         *            closed
+         */
+        public void onSettled(int state);
+    }
+
+    public interface OnSnapFinishedListener {
+        /**
+         * Called when an open or close animation has finished.
+         * 
+         * @param open the state the menu has settled in
+         * @param frames number of frames the animation was drawn in
+         * @param droppedFrames number of frames that were skipped because the
+         *            previous frame took too long
+         */
+        public void onSnapFinished(boolean open, int frames, int droppedFrames);
+    }
+
+    public interface OnSlideMetricsListener {
+        /**
+         * Called on the UI thread with the events recorded since the last
+         * call. The batch is reused, so it must not be kept after returning.
+         */
+        public void onSlideMetrics(SlideMetrics metrics);
+    }
+
+    public interface FragmentFactory {
+        public Fragment createFragment();
     }
 }
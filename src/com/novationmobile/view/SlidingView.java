@@ -2,6 +2,11 @@
 package com.novationmobile.view;
 
 import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.VelocityTrackerCompat;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.view.MotionEvent;
@@ -9,10 +14,9 @@ import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.WindowManager;
-import android.widget.Scroller;
+import android.view.animation.Interpolator;
 
-class SlidingView extends ViewGroup {
+class SlidingView extends ViewGroup implements SlideAnimator.Callback {
 
     @SuppressWarnings("unused")
     private static final String TAG= "SlidingView";
@@ -37,28 +41,124 @@ class SlidingView extends ViewGroup {
     // per millisecond).
     private static final int VELOCITY_UNIT_PIXELS_PER_SECOND= 1000;
 
+    // Default width of the edge strips a drag can start from in bezel mode
+    private static final int BEZEL_SIZE_DIP= 24;
+
     private static final int TOUCH_STATE_REST= 0;
     private static final int TOUCH_STATE_HORIZONTAL_SCROLLING= 1;
     private static final int TOUCH_STATE_VERTICAL_SCROLLING= -1;
+    // Decided on the down event: this gesture can't drag the panel
+    private static final int TOUCH_STATE_IGNORED= 2;
+    // A child under the finger scrolls horizontally, until it reaches its edge
+    private static final int TOUCH_STATE_CHILD_SCROLLING= 3;
 
-    private static final float DEFAULT_SLIDER_WIDTH= .85f;
+    static final float DEFAULT_SLIDER_WIDTH= .85f;
 
     private static final long MAX_CLICK_DELAY= 700;
 
+    // Until a SlideTuning tells the actual refresh rate
+    private static final float DEFAULT_REFRESH_RATE= 60f;
+
+    private static final int INVALID_POINTER= -1;
+
     private int mDensityAdjustedSnapVelocity;
+    private int mAnimationDuration= ANIMATION_SCREEN_SET_DURATION_MILLIS;
+    // Caps the swipe threshold on wide screens, 0 for no cap
+    private int mMaxSwipeThreshold;
+    private boolean mReducedMotion;
     private boolean mFirstLayout= true;
     private float mLastMotionX;
     private float mLastMotionY;
+    // The pointer that drags the panel, the other fingers are ignored
+    private int mActivePointerId= INVALID_POINTER;
     private int mMaximumVelocity;
-    private Scroller mScroller;
+    private SlideAnimator mAnimator;
     private int mTouchSlop;
     private int mTouchState= TOUCH_STATE_REST;
+    private int mTouchMode= SlidingMenuView.TOUCH_MODE_FULLSCREEN;
+
+    /*
+     * The panel was caught while animating and hasn't been dragged since. The
+     * velocity it had is kept, in case it is let go again right away.
+     */
+    private boolean mCaught;
+    private float mCatchVelocity;
+    private int mBezelSize;
     private VelocityTracker mVelocityTracker;
     private int mLastSeenLayoutWidth= -1;
     private View mChild;
     private float mSliderWidth= DEFAULT_SLIDER_WIDTH;
-    private boolean mOpen;
-    private OnStateChangedListener mListener;
+    private float mRightSliderWidth;
+    private int mState= SlidingMenuView.SIDE_NONE;
+    private int mRevealedSide= SlidingMenuView.SIDE_NONE;
+    // State restored before the first measure, applied there without animation
+    private int mRestoredState= SlidingMenuView.SIDE_NONE;
+    private SlidingMenuView.OnMenuStateChangedListener mListener;
+
+    /*
+     * Hardware layer handling. While the panel is dragged or snapping the
+     * child (and optionally the menu) is rendered from a layer, so each frame
+     * only recomposites it instead of redrawing the whole hierarchy.
+     */
+    private int mLayerMode= SlidingMenuView.LAYER_MODE_NONE;
+    private View mLayerMenu;
+    private View mLayerRightMenu;
+    private boolean mLayersActive;
+    private int mLayerFrames;
+    private SlidingMenuView.OnLayerFramesListener mLayerListener;
+
+    /*
+     * How far the child is moved to the right, between
+     * -getActualRightSliderWidth() (right menu open), 0 (closed) and
+     * getActualSliderWidth() (left menu open). The slide engine decides
+     * whether this is applied through the scroll position or the child's
+     * translation.
+     */
+    private int mSlideOffset;
+    private int mSlideEngine= SlidingMenuView.SLIDE_ENGINE_SCROLL;
+
+    private SlidingMenuView.OnSnapFinishedListener mSnapListener;
+    private SlideCallback mSlideCallback;
+
+    private int mSettleMode= SlidingMenuView.SETTLE_MODE_DURATION;
+    private float mSpringStiffness= SlidingMenuView.DEFAULT_SPRING_STIFFNESS;
+    private float mSpringDampingRatio= SlidingMenuView.DEFAULT_SPRING_DAMPING_RATIO;
+
+    /*
+     * Metrics are only recorded while a listener is set. They are delivered
+     * in a separate message after the gesture or animation. A batch that
+     * fills up during a long drag is swapped for the spare one and delivered
+     * in a message as well.
+     */
+    private SlideMetrics mMetrics;
+    private SlideMetrics mSpareMetrics;
+    private SlideMetrics mFullMetrics;
+    private SlidingMenuView.OnSlideMetricsListener mMetricsListener;
+    private boolean mMetricsPosted;
+    private long mLastDragTime;
+    private long mSnapStartTime;
+    private int mSnapRequestedDuration;
+
+    private final Runnable mDeliverMetrics= new Runnable() {
+        public void run() {
+            mMetricsPosted= false;
+            if (mFullMetrics != null) {
+                final SlideMetrics full= mFullMetrics;
+                mFullMetrics= null;
+                if (mMetricsListener != null) {
+                    mMetricsListener.onSlideMetrics(full);
+                }
+                full.clear();
+                mSpareMetrics= full;
+            }
+            if (mMetricsListener != null && mMetrics.getEventCount() > 0) {
+                mMetricsListener.onSlideMetrics(mMetrics);
+            }
+            if (mMetrics != null) {
+                mMetrics.clear();
+            }
+        }
+    };
 
     public SlidingView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
@@ -76,18 +176,17 @@ class SlidingView extends ViewGroup {
     }
 
     private void init() {
-        mScroller= new Scroller(getContext());
-
         // Calculate the density-dependent snap velocity in pixels
-        DisplayMetrics displayMetrics= new DisplayMetrics();
-        ((WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay()
-                .getMetrics(displayMetrics);
+        final DisplayMetrics displayMetrics= getResources().getDisplayMetrics();
         mDensityAdjustedSnapVelocity=
                 (int) (displayMetrics.density * SNAP_VELOCITY_DIP_PER_SECOND);
+        mBezelSize= (int) (displayMetrics.density * BEZEL_SIZE_DIP + .5f);
 
         final ViewConfiguration configuration= ViewConfiguration.get(getContext());
         mTouchSlop= configuration.getScaledTouchSlop();
         mMaximumVelocity= configuration.getScaledMaximumFlingVelocity();
+
+        mAnimator= new SlideAnimator(this, this, DEFAULT_REFRESH_RATE);
     }
 
     @Override
@@ -112,7 +211,7 @@ class SlidingView extends ViewGroup {
         }
 
         if (mFirstLayout) {
-            close();
+            setCurrentState(mRestoredState, false);
             mFirstLayout= false;
         } else if (width != mLastSeenLayoutWidth) { // Width has changed
             /*
@@ -122,10 +221,7 @@ class SlidingView extends ViewGroup {
              * this you can end up between two pages after a rotation.
              */
 
-            final int newX= getActualSliderWidth();
-            final int delta= newX - getScrollX();
-
-            mScroller.startScroll(getScrollX(), 0, delta, 0, 0);
+            finishAtState();
         }
 
         mLastSeenLayoutWidth= width;
@@ -136,7 +232,8 @@ class SlidingView extends ViewGroup {
             final int b) {
         if (mChild != null && mChild.getVisibility() != View.GONE) {
             final int width= mChild.getMeasuredWidth();
-            final int left= (int) (getWidth() * getSliderWidth());
+            final int left=
+                    mSlideEngine == SlidingMenuView.SLIDE_ENGINE_SCROLL ? getActualSliderWidth() : 0;
             mChild.layout(left, 0, left + width, mChild.getMeasuredHeight());
         }
     }
@@ -161,9 +258,15 @@ class SlidingView extends ViewGroup {
          * children, but once a scroll registers for y-wise scrolling, let the
          * children handle it exclusively.
          */
-        final int action= ev.getAction();
+        final int action= MotionEventCompat.getActionMasked(ev);
         boolean intercept= false;
 
+        /*
+         * Track the events the children get as well, so the velocity is right
+         * when a drag is taken over halfway through the gesture.
+         */
+        trackMovement(ev);
+
         switch (action) {
             case MotionEvent.ACTION_MOVE:
                 /*
@@ -179,10 +282,31 @@ class SlidingView extends ViewGroup {
                      * in onTouchEvent.
                      */
                     intercept= true;
-                } else if (mTouchState == TOUCH_STATE_VERTICAL_SCROLLING) {
-                    // Let children handle the events for the duration of the
-                    // scroll event.
+                } else if (mTouchState == TOUCH_STATE_VERTICAL_SCROLLING
+                        || mTouchState == TOUCH_STATE_IGNORED) {
+                    /*
+                     * Let children handle the events for the duration of the
+                     * scroll event, or of a gesture that can't drag the panel.
+                     */
                     intercept= false;
+                } else if (mTouchState == TOUCH_STATE_CHILD_SCROLLING) {
+                    /*
+                     * Hand off to the panel once the child can't scroll any
+                     * further in the direction the finger moves.
+                     */
+                    final int pointerIndex=
+                            MotionEventCompat.findPointerIndex(ev, mActivePointerId);
+                    if (pointerIndex == -1) {
+                        break;
+                    }
+                    final float x= MotionEventCompat.getX(ev, pointerIndex);
+                    final float dx= x - mLastMotionX;
+                    if (dx != 0 && canMovePanel(dx) && !canScroll(this, false, dx > 0 ? 1 : -1,
+                            (int) x, (int) MotionEventCompat.getY(ev, pointerIndex))) {
+                        startDrag(dx);
+                        intercept= true;
+                    }
+                    mLastMotionX= x;
                 } else { // We haven't picked up a scroll event yet; check for
                          // one.
 
@@ -193,24 +317,42 @@ class SlidingView extends ViewGroup {
                      * handle it and don't look to intercept again until the
                      * motion is done.
                      */
-                    final float x= ev.getX();
+                    final int pointerIndex=
+                            MotionEventCompat.findPointerIndex(ev, mActivePointerId);
+                    if (pointerIndex == -1) {
+                        break;
+                    }
+                    final float x= MotionEventCompat.getX(ev, pointerIndex);
                     final int xDiff= (int) Math.abs(x - mLastMotionX);
                     boolean xMoved= xDiff > mTouchSlop;
 
+                    final float y= MotionEventCompat.getY(ev, pointerIndex);
+                    final float dx= x - mLastMotionX;
+
+                    // Get the menu ready while the slop is being crossed
+                    prewarm(dx, y - mLastMotionY);
+
                     if (xMoved) {
-                        // Scroll if the user moved far enough along the X axis
-                        mTouchState= TOUCH_STATE_HORIZONTAL_SCROLLING;
+                        if (canScroll(this, false, (int) dx, (int) x, (int) y)) {
+                            // Leave the movement to the child that can scroll
+                            mTouchState= TOUCH_STATE_CHILD_SCROLLING;
+                            cancelPrewarm();
+                        } else if (canMovePanel(dx)) {
+                            // Scroll if the user moved far enough along the X
+                            // axis
+                            startDrag(dx);
+                            intercept= true;
+                        }
                         mLastMotionX= x;
-                        intercept= true;
                     }
 
-                    final float y= ev.getY();
                     final int yDiff= (int) Math.abs(y - mLastMotionY);
                     boolean yMoved= yDiff > mTouchSlop;
 
-                    if (yMoved) {
+                    if (yMoved && mTouchState == TOUCH_STATE_REST) {
                         mTouchState= TOUCH_STATE_VERTICAL_SCROLLING;
                         mLastMotionY= y;
+                        cancelPrewarm();
                     }
                 }
 
@@ -219,143 +361,211 @@ class SlidingView extends ViewGroup {
             case MotionEvent.ACTION_UP:
                 // Release the drag.
                 mTouchState= TOUCH_STATE_REST;
+                mActivePointerId= INVALID_POINTER;
+                cancelPrewarm();
+                break;
+            case MotionEventCompat.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
                 break;
             case MotionEvent.ACTION_DOWN:
                 /*
                  * No motion yet, but register the coordinates so we can check
-                 * for intercept at the next MOVE event.
+                 * for intercept at the next MOVE event. Whatever can be decided
+                 * now is, so gestures that can't drag the panel go to the
+                 * children without any further checks.
                  */
-                if (isOpen()) {
-                    // If it is open, force intereception of all events.
-                    intercept= true;
-                }
-
                 mLastMotionY= ev.getY();
                 mLastMotionX= ev.getX();
+                mActivePointerId= MotionEventCompat.getPointerId(ev, 0);
 
                 mTouchState= TOUCH_STATE_REST;
+                if (mSlideOffset != 0 && !shouldIgnoreEvent(ev)) {
+                    // The open or moving panel is tapped or caught
+                    intercept= true;
+                } else if (!canStartDrag(ev)) {
+                    mTouchState= TOUCH_STATE_IGNORED;
+                } else if (mSlideOffset == 0) {
+                    // A touch near an edge is likely to open that menu
+                    if (mLastMotionX < mBezelSize) {
+                        prewarm(SlidingMenuView.SIDE_LEFT);
+                    } else if (mLastMotionX > getWidth() - mBezelSize) {
+                        prewarm(SlidingMenuView.SIDE_RIGHT);
+                    }
+                }
                 break;
             default:
                 break;
         }
 
-        if (mVelocityTracker != null) {
-            mVelocityTracker.recycle();
-            mVelocityTracker= null;
-        }
-
         return intercept;
     }
 
     @Override
     public boolean onTouchEvent(final MotionEvent ev) {
 
-        if (mVelocityTracker == null) {
-            mVelocityTracker= VelocityTracker.obtain();
-        }
-        mVelocityTracker.addMovement(ev);
+        trackMovement(ev);
 
-        final int action= ev.getAction();
-        final float x= ev.getX();
+        final int action= MotionEventCompat.getActionMasked(ev);
 
         boolean result= true;
 
         switch (action) {
             case MotionEvent.ACTION_DOWN:
                 /*
-                 * If being flinged and user touches, stop the fling. isFinished
-                 * will be false if being flinged.
+                 * If being flinged and user touches, stop the fling and let the
+                 * finger take over from where the panel is.
                  */
-                if (!mScroller.isFinished()) {
-                    mScroller.abortAnimation();
-                }
+                final boolean wasAnimating= mAnimator.isRunning();
+                mCaught= false;
+                mCatchVelocity= mAnimator.getVelocity();
+                mAnimator.cancel();
 
                 // Remember where the motion event started
-                mLastMotionX= x;
+                mLastMotionX= ev.getX();
+                mLastMotionY= ev.getY();
+                mActivePointerId= MotionEventCompat.getPointerId(ev, 0);
 
-                if (mScroller.isFinished()) {
-                    mTouchState= TOUCH_STATE_REST;
-                } else {
+                if (wasAnimating && mTouchMode != SlidingMenuView.TOUCH_MODE_NONE) {
                     mTouchState= TOUCH_STATE_HORIZONTAL_SCROLLING;
-                }
+                    mCaught= true;
+                } else {
+                    mTouchState= TOUCH_STATE_REST;
 
-                if (shouldIgnoreEvent(ev)) {
-                    if (mVelocityTracker != null) {
-                        mVelocityTracker.recycle();
-                        mVelocityTracker= null;
+                    // The panel can't be caught, let it finish
+                    if (wasAnimating) {
+                        snapToState(mState);
                     }
+                }
 
+                if (shouldIgnoreEvent(ev)
+                        || mSlideOffset == 0 && !wasAnimating && !canStartDrag(ev)) {
                     mTouchState= TOUCH_STATE_REST;
+                    mCaught= false;
                     result= false;
+
+                    // Don't leave the panel stuck halfway
+                    if (wasAnimating && !mAnimator.isRunning()) {
+                        snapToState(mState);
+                    }
                 }
 
                 break;
             case MotionEvent.ACTION_MOVE:
+                if (mTouchState == TOUCH_STATE_IGNORED) {
+                    break;
+                }
+
+                final int pointerIndex= MotionEventCompat.findPointerIndex(ev, mActivePointerId);
+                if (pointerIndex == -1) {
+                    break;
+                }
+                final float x= MotionEventCompat.getX(ev, pointerIndex);
+
+                if (mTouchMode != SlidingMenuView.TOUCH_MODE_NONE) {
+                    prewarm(x - mLastMotionX,
+                            MotionEventCompat.getY(ev, pointerIndex) - mLastMotionY);
+                }
+
                 final int xDiff= (int) Math.abs(x - mLastMotionX);
                 boolean xMoved= xDiff > mTouchSlop;
 
-                if (xMoved) {
+                if (xMoved && mTouchMode != SlidingMenuView.TOUCH_MODE_NONE
+                        && canMovePanel(x - mLastMotionX)) {
                     // Scroll if the user moved far enough along the X axis
-                    mTouchState= TOUCH_STATE_HORIZONTAL_SCROLLING;
+                    startDrag(x - mLastMotionX);
                 }
 
                 if (mTouchState == TOUCH_STATE_HORIZONTAL_SCROLLING) {
-                    // Scroll to follow the motion event
+                    // Slide to follow the motion event
                     final int deltaX= (int) (mLastMotionX - x);
-                    mLastMotionX= x;
-                    final int scrollX= getScrollX();
-
-                    if (deltaX < 0) {
-                        if (scrollX > 0) {
-                            scrollBy(Math.max(-scrollX, deltaX), 0);
-                        }
-                    } else if (deltaX > 0) {
-                        final int availableToScroll=
-                                getChildAt(getChildCount() - 1).getRight() - scrollX - getWidth();
-
-                        if (availableToScroll > 0) {
-                            scrollBy(Math.min(availableToScroll, deltaX), 0);
-                        }
+                    // Keep the fraction of a pixel for the next move
+                    mLastMotionX-= deltaX;
+
+                    // An open menu can only be closed, not dragged past closed
+                    final int min= mState == SlidingMenuView.SIDE_LEFT ? 0
+                            : -getActualRightSliderWidth();
+                    final int max= mState == SlidingMenuView.SIDE_RIGHT ? 0
+                            : getActualSliderWidth();
+                    final int offset= Math.max(min, Math.min(max, mSlideOffset - deltaX));
+
+                    if (offset != mSlideOffset) {
+                        mCaught= false;
+                        setSlideOffset(offset);
+                        countLayerFrame();
+                        recordDragFrame(ev);
                     }
                 }
 
                 break;
 
             case MotionEvent.ACTION_UP:
-                if (mTouchState == TOUCH_STATE_HORIZONTAL_SCROLLING) {
+                if (mCaught && ev.getEventTime() - ev.getDownTime() < MAX_CLICK_DELAY) {
+                    // Tapped while moving: let it go on as if it was never held
+                    snapToState(mState, -1, mCatchVelocity);
+                } else if (mTouchState == TOUCH_STATE_HORIZONTAL_SCROLLING) {
                     final VelocityTracker velocityTracker= mVelocityTracker;
                     velocityTracker.computeCurrentVelocity(VELOCITY_UNIT_PIXELS_PER_SECOND,
                             mMaximumVelocity);
-                    int velocityX= (int) velocityTracker.getXVelocity();
+                    int velocityX= (int) VelocityTrackerCompat.getXVelocity(velocityTracker,
+                            mActivePointerId);
 
                     if (velocityX > mDensityAdjustedSnapVelocity) {
-                        // Fling hard enough to move left
-                        snapToState(true);
+                        // Fling hard enough to move right: close the right menu
+                        // or open the left one
+                        final int state= mSlideOffset < 0 || getActualSliderWidth() == 0
+                                ? SlidingMenuView.SIDE_NONE : SlidingMenuView.SIDE_LEFT;
+                        recordSettle(SlideMetrics.SETTLE_FLING, state);
+                        settleToState(state, velocityX);
                     } else if (velocityX < -mDensityAdjustedSnapVelocity) {
-                        // Fling hard enough to move right
-                        snapToState(false);
+                        // Fling hard enough to move left: close the left menu or
+                        // open the right one
+                        final int state= mSlideOffset > 0 || getActualRightSliderWidth() == 0
+                                ? SlidingMenuView.SIDE_NONE : SlidingMenuView.SIDE_RIGHT;
+                        recordSettle(SlideMetrics.SETTLE_FLING, state);
+                        settleToState(state, velocityX);
                     } else {
-                        snapToDestination();
+                        snapToDestination(velocityX);
                     }
                 } else if (mTouchState == TOUCH_STATE_REST
                         && ev.getEventTime() - ev.getDownTime() < MAX_CLICK_DELAY) {
-                    animateClose();
-                }
-
-                if (mVelocityTracker != null) {
-                    mVelocityTracker.recycle();
-                    mVelocityTracker= null;
+                    setCurrentState(SlidingMenuView.SIDE_NONE, true,
+                            SlideMetrics.SETTLE_TAP_TO_CLOSE);
                 }
 
                 mTouchState= TOUCH_STATE_REST;
+                mActivePointerId= INVALID_POINTER;
+                mCaught= false;
+                mLastDragTime= 0;
+                scheduleMetricsDelivery();
+                cancelPrewarm();
                 break;
             case MotionEvent.ACTION_CANCEL:
-                if (mVelocityTracker != null) {
-                    mVelocityTracker.recycle();
-                    mVelocityTracker= null;
+                // Don't leave the panel where the drag was interrupted
+                if (mTouchState == TOUCH_STATE_HORIZONTAL_SCROLLING) {
+                    mTouchState= TOUCH_STATE_REST;
+                    snapToState(mState);
                 }
 
                 mTouchState= TOUCH_STATE_REST;
+                mActivePointerId= INVALID_POINTER;
+                mCaught= false;
+                mLastDragTime= 0;
+                scheduleMetricsDelivery();
+
+                if (!mAnimator.isRunning()) {
+                    stopLayers();
+                }
+                cancelPrewarm();
+                break;
+            case MotionEventCompat.ACTION_POINTER_DOWN:
+                // The newest finger takes over the drag
+                final int index= MotionEventCompat.getActionIndex(ev);
+                mLastMotionX= MotionEventCompat.getX(ev, index);
+                mLastMotionY= MotionEventCompat.getY(ev, index);
+                mActivePointerId= MotionEventCompat.getPointerId(ev, index);
+                break;
+            case MotionEventCompat.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
                 break;
             default:
                 break;
@@ -364,40 +574,345 @@ class SlidingView extends ViewGroup {
         return result;
     }
 
+    /**
+     * Hand the drag over to another finger when the active one is lifted, so
+     * the panel doesn't jump to the position of the remaining finger.
+     */
+    private void onSecondaryPointerUp(MotionEvent ev) {
+        final int pointerIndex= MotionEventCompat.getActionIndex(ev);
+        final int pointerId= MotionEventCompat.getPointerId(ev, pointerIndex);
+        if (pointerId == mActivePointerId) {
+            final int newPointerIndex= pointerIndex == 0 ? 1 : 0;
+            mLastMotionX= MotionEventCompat.getX(ev, newPointerIndex);
+            mLastMotionY= MotionEventCompat.getY(ev, newPointerIndex);
+            // The tracker keeps the samples of each finger, so velocity
+            // is read for the new one without starting over
+            mActivePointerId= MotionEventCompat.getPointerId(ev, newPointerIndex);
+        }
+    }
+
+    /**
+     * Tests whether a view below the given point can scroll horizontally, the
+     * way android.support.v4.view.ViewPager does.
+     * 
+     * @param v view to test
+     * @param checkV whether v itself is tested, or only its children
+     * @param dx the horizontal movement of the finger
+     * @param x x coordinate in v's coordinates
+     * @param y y coordinate in v's coordinates
+     * @return true if a view would scroll by the movement
+     */
+    protected boolean canScroll(View v, boolean checkV, int dx, int x, int y) {
+        if (v instanceof ViewGroup) {
+            final ViewGroup group= (ViewGroup) v;
+            final int scrollX= v.getScrollX();
+            final int scrollY= v.getScrollY();
+            // Test the children from the top down, like touch dispatch
+            for (int i= group.getChildCount() - 1; i >= 0; i--) {
+                final View child= group.getChildAt(i);
+                if (child.getVisibility() == View.VISIBLE
+                        && x + scrollX >= child.getLeft() && x + scrollX < child.getRight()
+                        && y + scrollY >= child.getTop() && y + scrollY < child.getBottom()
+                        && canScroll(child, true, dx, x + scrollX - child.getLeft(),
+                                y + scrollY - child.getTop())) {
+                    return true;
+                }
+            }
+        }
+
+        return checkV && ViewCompat.canScrollHorizontally(v, -dx);
+    }
+
+    /**
+     * Decide on the down event whether the gesture may drag the panel. An open
+     * panel can be dragged from anywhere on it unless dragging is off.
+     */
+    private boolean canStartDrag(MotionEvent ev) {
+        switch (mTouchMode) {
+            case SlidingMenuView.TOUCH_MODE_NONE:
+                return false;
+            case SlidingMenuView.TOUCH_MODE_BEZEL:
+                if (mSlideOffset != 0) {
+                    return true;
+                }
+                final float x= ev.getX();
+                return x < mBezelSize && getActualSliderWidth() > 0
+                        || x > getWidth() - mBezelSize && getActualRightSliderWidth() > 0;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return whether a drag by deltaX moves the panel: a moved panel can
+     *         always be dragged, a closed one only towards a menu
+     */
+    private boolean canMovePanel(float deltaX) {
+        return mSlideOffset != 0
+                || hasMenu(deltaX > 0 ? SlidingMenuView.SIDE_LEFT : SlidingMenuView.SIDE_RIGHT);
+    }
+
+    /**
+     * @param deltaX the movement that started the drag, to tell which menu is
+     *            about to be revealed
+     */
+    private void startDrag(float deltaX) {
+        if (mTouchState == TOUCH_STATE_HORIZONTAL_SCROLLING) {
+            return;
+        }
+
+        mTouchState= TOUCH_STATE_HORIZONTAL_SCROLLING;
+        startLayers();
+        if (mSlideOffset == 0) {
+            revealSide(deltaX > 0 ? SlidingMenuView.SIDE_LEFT : SlidingMenuView.SIDE_RIGHT);
+        }
+    }
+
+    /**
+     * Prewarm the menu a mostly horizontal movement of the closed panel
+     * heads for. The first side is kept for the rest of the gesture, so
+     * jitter doesn't switch between the menus.
+     */
+    private void prewarm(float dx, float dy) {
+        if (dx != 0 && Math.abs(dx) > Math.abs(dy) && mSlideOffset == 0
+                && mRevealedSide == SlidingMenuView.SIDE_NONE) {
+            prewarm(dx > 0 ? SlidingMenuView.SIDE_LEFT : SlidingMenuView.SIDE_RIGHT);
+        }
+    }
+
+    /**
+     * Get a menu ready before it is uncovered: its fragment is created or
+     * attached and made visible, and with {@link
+     * SlidingMenuView#LAYER_MODE_MAIN_AND_MENU} its layer is built, so the
+     * first frames of the drag don't pay for its first draw. The main panel
+     * isn't put on a layer until it moves.
+     */
+    private void prewarm(int side) {
+        if (side == mRevealedSide || !hasMenu(side)) {
+            return;
+        }
+
+        revealSide(side);
+
+        final View menu= side == SlidingMenuView.SIDE_LEFT ? mLayerMenu : mLayerRightMenu;
+        if (mLayerMode == SlidingMenuView.LAYER_MODE_MAIN_AND_MENU && canUseLayers()
+                && menu != null && menu.getWindowToken() != null) {
+            menu.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            menu.buildLayer();
+        }
+    }
+
+    /**
+     * Undo a prewarm when the gesture ends without moving the panel.
+     */
+    private void cancelPrewarm() {
+        if (mSlideOffset != 0 || mAnimator.isRunning()
+                || mRevealedSide == SlidingMenuView.SIDE_NONE
+                || mTouchState == TOUCH_STATE_HORIZONTAL_SCROLLING) {
+            return;
+        }
+
+        if (!mLayersActive) {
+            stopMenuLayers();
+        }
+        mRevealedSide= SlidingMenuView.SIDE_NONE;
+        if (mSlideCallback != null) {
+            mSlideCallback.onRevealCancelled();
+        }
+    }
+
+    /*
+     * A child that takes the gesture stops the intercept calls that would
+     * otherwise undo the prewarm when the gesture ends.
+     */
     @Override
-    public void computeScroll() {
-        if (mScroller.computeScrollOffset()) {
-            scrollTo(mScroller.getCurrX(), mScroller.getCurrY());
-            postInvalidate();
+    public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+        super.requestDisallowInterceptTouchEvent(disallowIntercept);
+        if (disallowIntercept) {
+            cancelPrewarm();
+        }
+    }
+
+    /**
+     * Add an event to the velocity tracker. The same tracker is used for
+     * every gesture while the view is attached, and is cleared when a new
+     * gesture starts.
+     */
+    private void trackMovement(MotionEvent ev) {
+        if (mVelocityTracker == null) {
+            mVelocityTracker= VelocityTracker.obtain();
+        }
+        if (ev.getAction() == MotionEvent.ACTION_DOWN) {
+            mVelocityTracker.clear();
+        }
+        mVelocityTracker.addMovement(ev);
+    }
+
+    public void onAnimationFrame(int offset) {
+        // A spring may be thrown away from its target for a moment
+        setSlideOffset(Math.max(-getActualRightSliderWidth(),
+                Math.min(getActualSliderWidth(), offset)));
+        countLayerFrame();
+    }
+
+    public void onAnimationEnd(int frames, int droppedFrames) {
+        if (mTouchState != TOUCH_STATE_HORIZONTAL_SCROLLING) {
+            stopLayers();
+        }
+
+        notifySettled();
+
+        if (mSnapListener != null) {
+            mSnapListener.onSnapFinished(isOpen(), frames, droppedFrames);
+        }
+
+        if (mMetrics != null) {
+            final long now= SystemClock.uptimeMillis();
+            mMetrics.record(SlideMetrics.EVENT_SNAP, now, now - mSnapStartTime,
+                    mSnapRequestedDuration);
+            mMetrics.record(SlideMetrics.EVENT_JANK_FRAMES, now, droppedFrames, 0);
+            scheduleMetricsDelivery();
+        }
+    }
+
+    private void recordDragFrame(MotionEvent ev) {
+        if (mMetrics == null) {
+            return;
+        }
+
+        final long now= SystemClock.uptimeMillis();
+        if (mLastDragTime == 0) {
+            mMetrics.record(SlideMetrics.EVENT_TOUCH_LATENCY, now, now - ev.getDownTime(), 0);
+        } else {
+            mMetrics.record(SlideMetrics.EVENT_DRAG_FRAME, now, now - mLastDragTime, 0);
+        }
+        mLastDragTime= now;
+
+        // Don't lose events during a very long drag, nor deliver them here
+        if (mMetrics.isFull() && mFullMetrics == null) {
+            mFullMetrics= mMetrics;
+            mMetrics= mSpareMetrics;
+            mSpareMetrics= null;
+            if (!mMetricsPosted) {
+                mMetricsPosted= true;
+                post(mDeliverMetrics);
+            }
+        }
+    }
+
+    /**
+     * @param micros time spent drawing the first frame that uncovered a menu
+     * @param prewarmed whether the menu had been drawn before
+     */
+    void recordFirstReveal(long micros, boolean prewarmed) {
+        if (mMetrics != null) {
+            mMetrics.record(SlideMetrics.EVENT_FIRST_REVEAL, SystemClock.uptimeMillis(), micros,
+                    prewarmed ? 1 : 0);
+        }
+    }
+
+    private void recordSettle(int reason, int state) {
+        if (mMetrics != null) {
+            mMetrics.record(SlideMetrics.EVENT_SETTLE, SystemClock.uptimeMillis(), reason, state);
+        }
+    }
+
+    private void recordSnapStart(int requestedDuration) {
+        if (mMetrics != null) {
+            mSnapStartTime= SystemClock.uptimeMillis();
+            mSnapRequestedDuration= requestedDuration;
+        }
+    }
+
+    private void scheduleMetricsDelivery() {
+        if (mMetrics != null && !mMetricsPosted && mMetrics.getEventCount() > 0) {
+            mMetricsPosted= true;
+            post(mDeliverMetrics);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        // Frame callbacks are dropped with the window, so finish right away
+        if (mAnimator.isRunning()) {
+            mAnimator.cancel();
+            setSlideOffset(getStateOffset(mState));
+        }
+        stopLayers();
+
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker= null;
         }
     }
 
     public boolean isOpen() {
-        return mOpen;
+        return mState != SlidingMenuView.SIDE_NONE;
+    }
+
+    public boolean isOpen(int side) {
+        return mState == side;
+    }
+
+    /**
+     * @return the side whose menu is open, or SlidingMenuView.SIDE_NONE
+     */
+    public int getState() {
+        return mState;
     }
 
     public void open() {
-        setCurrentState(true, false);
+        open(SlidingMenuView.SIDE_LEFT);
+    }
+
+    public void open(int side) {
+        setCurrentState(side, false);
     }
 
     public void animateOpen() {
-        setCurrentState(true, true);
+        animateOpen(SlidingMenuView.SIDE_LEFT);
+    }
+
+    public void animateOpen(int side) {
+        setCurrentState(side, true);
+    }
+
+    /**
+     * Restore a saved state. Before the first measure the state is only
+     * remembered, and the first measure puts the panel straight into it.
+     */
+    void restoreState(int state) {
+        if (mFirstLayout) {
+            mRestoredState= state;
+        } else {
+            setCurrentState(state, false);
+        }
     }
 
     public void close() {
-        setCurrentState(false, false);
+        setCurrentState(SlidingMenuView.SIDE_NONE, false);
     }
 
     public void animateClose() {
-        setCurrentState(false, true);
+        setCurrentState(SlidingMenuView.SIDE_NONE, true);
     }
 
     public void toggle() {
-        setCurrentState(!isOpen(), false);
+        toggle(SlidingMenuView.SIDE_LEFT);
+    }
+
+    public void toggle(int side) {
+        setCurrentState(isOpen() ? SlidingMenuView.SIDE_NONE : side, false);
     }
 
     public void animateToggle() {
-        setCurrentState(!isOpen(), true);
+        animateToggle(SlidingMenuView.SIDE_LEFT);
+    }
+
+    public void animateToggle(int side) {
+        setCurrentState(isOpen() ? SlidingMenuView.SIDE_NONE : side, true);
     }
 
     public float getSliderWidth() {
@@ -405,72 +920,481 @@ class SlidingView extends ViewGroup {
     }
 
     public void setSliderWidth(float sliderWidth) {
+        if (sliderWidth == mSliderWidth) {
+            return;
+        }
         mSliderWidth= sliderWidth;
+
+        // Keep the panel at the edge of the new width
+        finishAtState();
+        requestLayout();
+    }
+
+    public float getRightSliderWidth() {
+        return mRightSliderWidth;
+    }
+
+    /**
+     * Set the width of the right menu. A width of 0 disables the right menu.
+     */
+    public void setRightSliderWidth(float sliderWidth) {
+        if (sliderWidth == mRightSliderWidth) {
+            return;
+        }
+        mRightSliderWidth= sliderWidth;
+
+        finishAtState();
+        requestLayout();
+    }
+
+    public int getLayerMode() {
+        return mLayerMode;
+    }
+
+    /**
+     * Set which views are moved onto a hardware layer while the panel moves.
+     * 
+     * @param layerMode one of the SlidingMenuView.LAYER_MODE_* constants
+     */
+    public void setLayerMode(int layerMode) {
+        stopLayers();
+        mLayerMode= layerMode;
+    }
+
+    /**
+     * Set the menu views that are put on a layer with LAYER_MODE_MAIN_AND_MENU.
+     */
+    public void setLayerMenus(View menu, View rightMenu) {
+        stopLayers();
+        mLayerMenu= menu;
+        mLayerRightMenu= rightMenu;
+    }
+
+    public void setOnLayerFramesListener(SlidingMenuView.OnLayerFramesListener listener) {
+        mLayerListener= listener;
+    }
+
+    public int getSlideEngine() {
+        return mSlideEngine;
+    }
+
+    /**
+     * Select how the child is moved. The translation engine needs API 11, older
+     * devices keep using the scroll engine.
+     * 
+     * @param slideEngine one of the SlidingMenuView.SLIDE_ENGINE_* constants
+     */
+    public void setSlideEngine(int slideEngine) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            slideEngine= SlidingMenuView.SLIDE_ENGINE_SCROLL;
+        }
+        if (slideEngine == mSlideEngine) {
+            return;
+        }
+
+        // Undo the previous engine before handing the offset to the new one
+        if (mSlideEngine == SlidingMenuView.SLIDE_ENGINE_TRANSLATION) {
+            if (mChild != null) {
+                mChild.setTranslationX(0);
+            }
+        } else {
+            scrollTo(0, 0);
+        }
+
+        mSlideEngine= slideEngine;
+        applySlideOffset();
+        requestLayout();
     }
 
-    public OnStateChangedListener getOnStateChangedListener() {
+    public Interpolator getInterpolator() {
+        return mAnimator.getInterpolator();
+    }
+
+    public void setInterpolator(Interpolator interpolator) {
+        mAnimator.setInterpolator(interpolator);
+    }
+
+    /**
+     * Take over the durations, thresholds and refresh rate of a tuning.
+     */
+    void setTuning(SlideTuning tuning) {
+        mAnimationDuration= tuning.getAnimationDuration();
+        mDensityAdjustedSnapVelocity= tuning.getSnapVelocity();
+        mMaxSwipeThreshold= tuning.getMaxSwipeThreshold();
+        mReducedMotion= tuning.isReducedMotion();
+        mAnimator.setRefreshRate(tuning.getRefreshRate());
+    }
+
+    public int getAnimationDuration() {
+        return mAnimationDuration;
+    }
+
+    public void setAnimationDuration(int duration) {
+        mAnimationDuration= duration;
+    }
+
+    public int getSnapVelocity() {
+        return mDensityAdjustedSnapVelocity;
+    }
+
+    public void setSnapVelocity(int velocity) {
+        mDensityAdjustedSnapVelocity= velocity;
+    }
+
+    public int getTouchMode() {
+        return mTouchMode;
+    }
+
+    /**
+     * @param touchMode one of the SlidingMenuView.TOUCH_MODE_* constants
+     */
+    public void setTouchMode(int touchMode) {
+        mTouchMode= touchMode;
+    }
+
+    public int getBezelSize() {
+        return mBezelSize;
+    }
+
+    public void setBezelSize(int bezelSize) {
+        mBezelSize= bezelSize;
+    }
+
+    public int getSettleMode() {
+        return mSettleMode;
+    }
+
+    public void setSettleMode(int settleMode) {
+        mSettleMode= settleMode;
+    }
+
+    public float getSpringStiffness() {
+        return mSpringStiffness;
+    }
+
+    public void setSpringStiffness(float stiffness) {
+        mSpringStiffness= stiffness;
+    }
+
+    public float getSpringDampingRatio() {
+        return mSpringDampingRatio;
+    }
+
+    public void setSpringDampingRatio(float dampingRatio) {
+        mSpringDampingRatio= dampingRatio;
+    }
+
+    public void setOnSnapFinishedListener(SlidingMenuView.OnSnapFinishedListener listener) {
+        mSnapListener= listener;
+    }
+
+    public void setOnSlideMetricsListener(SlidingMenuView.OnSlideMetricsListener listener) {
+        mMetricsListener= listener;
+        if (listener == null) {
+            mMetrics= null;
+            mSpareMetrics= null;
+            mFullMetrics= null;
+        } else if (mMetrics == null) {
+            mMetrics= new SlideMetrics();
+            mSpareMetrics= new SlideMetrics();
+        }
+    }
+
+    void setSlideCallback(SlideCallback callback) {
+        mSlideCallback= callback;
+    }
+
+    public SlidingMenuView.OnMenuStateChangedListener getOnMenuStateChangedListener() {
         return mListener;
     }
 
-    public void setOnStateChangedListener(OnStateChangedListener listener) {
+    public void setOnMenuStateChangedListener(SlidingMenuView.OnMenuStateChangedListener listener) {
         mListener= listener;
     }
 
-    private void setCurrentState(final boolean open, final boolean animate) {
+    private void setCurrentState(final int state, final boolean animate) {
+        setCurrentState(state, animate, SlideMetrics.SETTLE_PROGRAMMATIC);
+    }
+
+    private void setCurrentState(int state, final boolean animate, final int reason) {
+        if (!hasMenu(state)) {
+            state= SlidingMenuView.SIDE_NONE;
+        }
+
+        // Already there, e.g. closing a closed panel
+        if (animate && state == mState && mSlideOffset == getStateOffset(state)
+                && !mAnimator.isRunning()) {
+            return;
+        }
+
+        recordSettle(reason, state);
+        revealSide(state);
+
         if (animate) {
-            snapToState(open, ANIMATION_SCREEN_SET_DURATION_MILLIS);
+            // A running animation is retargeted, over the remaining distance
+            snapToState(state, mAnimator.isRunning() ? -1 : mAnimationDuration);
         } else {
-            mOpen= open;
-            notifyListener(isOpen());
-            int loc= open ? 0 : getActualSliderWidth();
-            scrollTo(loc, 0);
+            changeState(state);
+            finishAtState();
         }
         invalidate();
     }
 
+    /**
+     * Stop any animation and put the panel at the offset of its state, ending
+     * the way an animation does: the layers are dropped and the panel is
+     * settled.
+     */
+    private void finishAtState() {
+        mAnimator.cancel();
+        setSlideOffset(getStateOffset(mState));
+        if (mTouchState != TOUCH_STATE_HORIZONTAL_SCROLLING) {
+            stopLayers();
+        }
+        notifySettled();
+    }
+
     private int getActualSliderWidth() {
         return (int) (getMeasuredWidth() * mSliderWidth);
     }
 
-    private void snapToDestination() {
-        final int screenWidth= getWidth();
-        boolean open= isOpen();
-        int deltaX= getScrollX() - (!isOpen() ? getActualSliderWidth() : 0);
+    private int getActualRightSliderWidth() {
+        return (int) (getMeasuredWidth() * mRightSliderWidth);
+    }
 
-        if (isOpen() && ((screenWidth / FRACTION_OF_SCREEN_WIDTH_FOR_SWIPE) < deltaX)) {
-            open= false;
-        } else if (!isOpen() && ((screenWidth / FRACTION_OF_SCREEN_WIDTH_FOR_SWIPE) < -deltaX)) {
-            open= true;
+    private boolean hasMenu(int side) {
+        if (side == SlidingMenuView.SIDE_LEFT) {
+            return mSliderWidth > 0;
+        } else if (side == SlidingMenuView.SIDE_RIGHT) {
+            return mRightSliderWidth > 0;
+        }
+        return false;
+    }
+
+    /**
+     * @return the slide offset at which the panel rests in the given state
+     */
+    private int getStateOffset(int state) {
+        if (state == SlidingMenuView.SIDE_LEFT) {
+            return getActualSliderWidth();
+        } else if (state == SlidingMenuView.SIDE_RIGHT) {
+            return -getActualRightSliderWidth();
+        }
+        return 0;
+    }
+
+    private void snapToDestination(final int velocityX) {
+        int threshold= getWidth() / FRACTION_OF_SCREEN_WIDTH_FOR_SWIPE;
+        if (mMaxSwipeThreshold > 0) {
+            threshold= Math.min(threshold, mMaxSwipeThreshold);
+        }
+        int state= mState;
+
+        if (isOpen()) {
+            // Close if the open menu was pushed back far enough
+            if (threshold < Math.abs(getStateOffset(mState) - mSlideOffset)) {
+                state= SlidingMenuView.SIDE_NONE;
+            }
+        } else if (threshold < mSlideOffset) {
+            state= SlidingMenuView.SIDE_LEFT;
+        } else if (threshold < -mSlideOffset) {
+            state= SlidingMenuView.SIDE_RIGHT;
+        }
+
+        recordSettle(SlideMetrics.SETTLE_THRESHOLD, state);
+        settleToState(state, velocityX);
+    }
+
+    /**
+     * Settle after the user let go of the panel, keeping the velocity of the
+     * finger when the spring settle mode is used.
+     * 
+     * @param velocityX release velocity in pixels per second
+     */
+    private void settleToState(final int state, final int velocityX) {
+        if (mSettleMode != SlidingMenuView.SETTLE_MODE_SPRING || mReducedMotion) {
+            snapToState(state);
+            return;
         }
 
-        snapToState(open);
+        changeState(state);
+        notifySettling();
+
+        recordSnapStart(-1);
+        mAnimator.startSpring(mSlideOffset, getStateOffset(state), velocityX,
+                mSpringStiffness, mSpringDampingRatio);
+        startLayers();
+    }
+
+    private void snapToState(final int state) {
+        snapToState(state, -1);
+    }
+
+    private void snapToState(final int state, final int duration) {
+        // Keep the velocity of a running animation
+        snapToState(state, duration, mAnimator.getVelocity());
+    }
+
+    private void snapToState(final int state, final int duration, final float velocity) {
+        changeState(state);
+        notifySettling();
+
+        final int newOffset= getStateOffset(state);
+        final int delta= newOffset - mSlideOffset;
+
+        // E.g. if they've scrolled 80% of the way, only animation for 20% of
+        // the duration
+        final int actualDuration= duration >= 0 ? duration : (int) (Math.abs(delta)
+                / (float) getWidth() * mAnimationDuration);
+
+        recordSnapStart(actualDuration);
+        mAnimator.start(mSlideOffset, newOffset, actualDuration, mReducedMotion ? 0f : velocity);
+        startLayers();
     }
 
-    private void snapToState(final boolean open) {
-        snapToState(open, -1);
+    int getSlideOffset() {
+        return mSlideOffset;
     }
 
-    private void snapToState(final boolean open, final int duration) {
-        mOpen= open;
-        notifyListener(open);
+    /**
+     * @return how far the visible menu is uncovered, between 0 and 1
+     */
+    float getSlideFraction() {
+        final int width= mSlideOffset > 0 ? getActualSliderWidth()
+                : mSlideOffset < 0 ? getActualRightSliderWidth() : 0;
+        return width == 0 ? 0f : Math.abs(mSlideOffset) / (float) width;
+    }
 
-        final int newX= open ? 0 : getActualSliderWidth();
-        final int delta= newX - getScrollX();
+    private void setSlideOffset(int offset) {
+        mSlideOffset= offset;
+        applySlideOffset();
 
-        if (duration < 0) {
-            // E.g. if they've scrolled 80% of the way, only animation for 20%
-            // of the duration
-            mScroller.startScroll(getScrollX(), 0, delta, 0, (int) (Math.abs(delta)
-                    / (float) getWidth() * ANIMATION_SCREEN_SET_DURATION_MILLIS));
+        if (offset > 0) {
+            revealSide(SlidingMenuView.SIDE_LEFT);
+        } else if (offset < 0) {
+            revealSide(SlidingMenuView.SIDE_RIGHT);
+        }
+
+        if (mSlideCallback != null) {
+            mSlideCallback.onSlide(offset);
+        }
+    }
+
+    private void applySlideOffset() {
+        if (mSlideEngine == SlidingMenuView.SLIDE_ENGINE_TRANSLATION) {
+            if (mChild != null) {
+                mChild.setTranslationX(mSlideOffset);
+            }
         } else {
-            mScroller.startScroll(getScrollX(), 0, delta, 0, duration);
+            scrollTo(getActualSliderWidth() - mSlideOffset, 0);
         }
-        invalidate();
     }
 
-    private void notifyListener(boolean open) {
-        if (mListener != null) {
-            mListener.onStateChanged(open);
+    private boolean canUseLayers() {
+        /*
+         * Without hardware acceleration a hardware layer silently becomes a
+         * software layer, which is more expensive than drawing directly.
+         */
+        return mLayerMode != SlidingMenuView.LAYER_MODE_NONE
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                && isHardwareAccelerated();
+    }
+
+    private void startLayers() {
+        if (mLayersActive || mChild == null || !canUseLayers()) {
+            return;
+        }
+
+        mLayersActive= true;
+        mLayerFrames= 0;
+        mChild.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        if (mLayerMode == SlidingMenuView.LAYER_MODE_MAIN_AND_MENU) {
+            if (mLayerMenu != null) {
+                mLayerMenu.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            }
+            if (mLayerRightMenu != null) {
+                mLayerRightMenu.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            }
+        }
+    }
+
+    private void stopLayers() {
+        if (!mLayersActive) {
+            return;
+        }
+
+        mLayersActive= false;
+        mChild.setLayerType(View.LAYER_TYPE_NONE, null);
+        stopMenuLayers();
+
+        if (mLayerListener != null) {
+            mLayerListener.onLayerFrames(mLayerFrames);
+        }
+    }
+
+    private void stopMenuLayers() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return;
+        }
+        if (mLayerMenu != null && mLayerMenu.getLayerType() != View.LAYER_TYPE_NONE) {
+            mLayerMenu.setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+        if (mLayerRightMenu != null && mLayerRightMenu.getLayerType() != View.LAYER_TYPE_NONE) {
+            mLayerRightMenu.setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+    }
+
+    private void countLayerFrame() {
+        if (mLayersActive) {
+            mLayerFrames++;
+        }
+    }
+
+    /**
+     * Let the host prepare a menu the first time it is about to be uncovered
+     * since the panel was last closed.
+     */
+    private void revealSide(int side) {
+        if (side == SlidingMenuView.SIDE_NONE || side == mRevealedSide) {
+            return;
+        }
+        if (!hasMenu(side)) {
+            return;
+        }
+
+        mRevealedSide= side;
+        if (mSlideCallback != null) {
+            mSlideCallback.onOpening(side);
+        }
+    }
+
+    private void notifySettling() {
+        if (mSlideCallback != null) {
+            mSlideCallback.onSettling(mState);
+        }
+    }
+
+    private void notifySettled() {
+        if (mState == SlidingMenuView.SIDE_NONE) {
+            mRevealedSide= SlidingMenuView.SIDE_NONE;
+        }
+        if (mSlideCallback != null) {
+            mSlideCallback.onSettled(mState);
+        }
+    }
+
+    private void changeState(int state) {
+        final int previous= mState;
+        mState= state;
+
+        if (mListener == null || previous == state) {
+            return;
+        }
+        if (previous != SlidingMenuView.SIDE_NONE) {
+            mListener.onMenuStateChanged(previous, false);
+        }
+        if (state != SlidingMenuView.SIDE_NONE) {
+            mListener.onMenuStateChanged(state, true);
         }
     }
 
@@ -479,8 +1403,8 @@ class SlidingView extends ViewGroup {
         float x= ev.getX();
         float y= ev.getY();
 
-        int left= mChild.getLeft() - getScrollX();
-        int right= mChild.getRight() - getScrollX();
+        int left= mSlideOffset;
+        int right= left + mChild.getWidth();
         int top= mChild.getTop();
         int bottom= mChild.getBottom();
 
@@ -488,7 +1412,46 @@ class SlidingView extends ViewGroup {
                 || y < top || y > bottom;
     }
 
-    public interface OnStateChangedListener {
-        public void onStateChanged(boolean open);
+    /**
+     * Lets the hosting SlidingMenuView prepare the menu as the panel moves.
+     */
+    interface SlideCallback {
+        /**
+         * A menu is about to be uncovered, either because a drag started or
+         * is likely to start, or because it is being opened.
+         * 
+         * @param side SlidingMenuView.SIDE_LEFT or SIDE_RIGHT
+         */
+        public void onOpening(int side);
+
+        /**
+         * A gesture that was likely to uncover a menu ended without moving
+         * the panel.
+         */
+        public void onRevealCancelled();
+
+        /**
+         * The panel has moved.
+         * 
+         * @param offset how far the panel is moved to the right, negative
+         *            while the right menu shows
+         */
+        public void onSlide(int offset);
+
+        /**
+         * The panel has started to animate towards a state.
+         * 
+         * @param state SlidingMenuView.SIDE_NONE when closing, otherwise the
+         *            side that is opening
+         */
+        public void onSettling(int state);
+
+        /**
+         * The panel has come to rest.
+         * 
+         * @param state SlidingMenuView.SIDE_NONE when closed, otherwise the
+         *            side that is open
+         */
+        public void onSettled(int state);
     }
 }
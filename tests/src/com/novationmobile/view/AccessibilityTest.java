@@ -0,0 +1,211 @@
+package com.novationmobile.view;
+
+import java.util.ArrayList;
+
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.util.Log;
+import android.view.KeyEvent;
+import android.view.View;
+
+import com.novationmobile.view.tests.R;
+
+/**
+ * Only what can be seen is exposed to accessibility services and keyboard
+ * focus, and the menu can be opened and closed without touch.
+ */
+public class AccessibilityTest extends SlidingTestCase {
+
+    private static final String TAG= "AccessibilityTest";
+
+    public void testCoveredContentIsNotImportant() throws Throwable {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            // Importance can't be read back before API 16
+            return;
+        }
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+            }
+        });
+        assertImportant(R.id.main, true);
+        assertImportant(R.id.menu, false);
+        assertImportant(R.id.right_menu, false);
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.open();
+            }
+        });
+        assertImportant(R.id.main, false);
+        assertImportant(R.id.menu, true);
+        assertImportant(R.id.right_menu, false);
+    }
+
+    public void testClosedMenusAreLeftOutOfNodeTree() throws Throwable {
+        if (Build.VERSION.SDK_INT < KITKAT) {
+            // Menus are only left out with their descendants from API 19
+            return;
+        }
+        final View slider= (View) mView.findViewById(R.id.main).getParent();
+
+        /*
+         * The menus and the main panel aren't actionable themselves, so their
+         * buttons are the nodes the framework reports in their place.
+         */
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+            }
+        });
+        Log.i(TAG, "closed.nodes=" + getChildNodeCount(mView) + "+"
+                + getChildNodeCount(slider) + " of " + countViews(mView) + " views");
+        assertEquals("Only the panel is below the view", 1, getChildNodeCount(mView));
+        assertEquals("Only the main button is on the panel", 1, getChildNodeCount(slider));
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.open();
+            }
+        });
+        assertEquals("The menu button and the panel are below the view", 2,
+                getChildNodeCount(mView));
+        assertEquals("The covered main panel is left out", 0, getChildNodeCount(slider));
+    }
+
+    public void testScrollActionsMatchState() throws Throwable {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            // No node info before API 14
+            return;
+        }
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+            }
+        });
+        int actions= getActions();
+        assertTrue((actions & AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD) != 0);
+        assertTrue((actions & AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD) == 0);
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.open();
+            }
+        });
+        actions= getActions();
+        assertTrue((actions & AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD) == 0);
+        assertTrue((actions & AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD) != 0);
+    }
+
+    public void testFocusIsTrappedInOpenMenu() throws Throwable {
+        final ArrayList<View> focusables= new ArrayList<View>();
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.open();
+                mView.addFocusables(focusables, View.FOCUS_FORWARD, View.FOCUSABLES_ALL);
+            }
+        });
+        assertEquals(1, focusables.size());
+        assertSame(mView.findViewById(R.id.menu_button), focusables.get(0));
+
+        focusables.clear();
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+                mView.addFocusables(focusables, View.FOCUS_FORWARD, View.FOCUSABLES_ALL);
+            }
+        });
+        assertEquals(1, focusables.size());
+        assertSame(mView.findViewById(R.id.main_button), focusables.get(0));
+    }
+
+    public void testBackClosesOpenMenu() throws Throwable {
+        final boolean[] handled= new boolean[1];
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+                handled[0]= sendKey(KeyEvent.KEYCODE_BACK);
+            }
+        });
+        assertFalse("Back is left to the activity while closed", handled[0]);
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.open();
+            }
+        });
+        runAndSettle(new Runnable() {
+            public void run() {
+                handled[0]= sendKey(KeyEvent.KEYCODE_BACK);
+            }
+        });
+        assertTrue(handled[0]);
+        assertEquals(SlidingMenuView.SIDE_NONE, mView.getOpenSide());
+    }
+
+    public void testDpadOpensAndClosesMenus() throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+            }
+        });
+
+        runAndSettle(new Runnable() {
+            public void run() {
+                sendKey(KeyEvent.KEYCODE_DPAD_LEFT);
+            }
+        });
+        assertEquals(SlidingMenuView.SIDE_LEFT, mView.getOpenSide());
+
+        runAndSettle(new Runnable() {
+            public void run() {
+                sendKey(KeyEvent.KEYCODE_DPAD_RIGHT);
+            }
+        });
+        assertEquals(SlidingMenuView.SIDE_NONE, mView.getOpenSide());
+
+        runAndSettle(new Runnable() {
+            public void run() {
+                sendKey(KeyEvent.KEYCODE_DPAD_RIGHT);
+            }
+        });
+        assertEquals(SlidingMenuView.SIDE_RIGHT, mView.getOpenSide());
+    }
+
+    /**
+     * Send a key straight to the view, the way it arrives when nothing inside
+     * it handles the key.
+     */
+    private boolean sendKey(int keyCode) {
+        final boolean down= mView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, keyCode));
+        final boolean up= mView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_UP, keyCode));
+        return down || up;
+    }
+
+    private int getActions() {
+        final AccessibilityNodeInfoCompat info= AccessibilityNodeInfoCompat.obtain();
+        ViewCompat.onInitializeAccessibilityNodeInfo(mView, info);
+        final int actions= info.getActions();
+        info.recycle();
+        return actions;
+    }
+
+    private void assertImportant(int id, boolean important) {
+        final int importance= ViewCompat.getImportantForAccessibility(mView.findViewById(id));
+        assertEquals(important, importance == ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO);
+    }
+
+    /**
+     * @return number of nodes the framework reports below the view's node
+     */
+    private static int getChildNodeCount(View view) {
+        final AccessibilityNodeInfoCompat info= AccessibilityNodeInfoCompat.obtain();
+        ViewCompat.onInitializeAccessibilityNodeInfo(view, info);
+        final int count= info.getChildCount();
+        info.recycle();
+        return count;
+    }
+}
@@ -0,0 +1,87 @@
+package com.novationmobile.view;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Content declared in XML is used as is, one level flatter than content
+ * added to the default containers the way fragments are.
+ */
+public class DeclaredContentTest extends AndroidTestCase {
+
+    private static final String TAG= "DeclaredContentTest";
+
+    private static final int WARMUP_ITERATIONS= 10;
+    private static final int ITERATIONS= 50;
+
+    private LayoutInflater mInflater;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mInflater= LayoutInflater.from(getContext());
+    }
+
+    public void testDeclaredContentIsFlatter() {
+        final View declared= inflateDeclared();
+        final View contained= inflateIntoContainers();
+
+        assertEquals(getDepth(contained) - 1, getDepth(declared));
+        assertTrue(SlidingTestCase.countViews(declared)
+                < SlidingTestCase.countViews(contained));
+    }
+
+    public void testDeclaredContentInflationTime() {
+        for (int i= 0; i < WARMUP_ITERATIONS; i++) {
+            inflateDeclared();
+            inflateIntoContainers();
+        }
+
+        long declared= 0;
+        long contained= 0;
+        for (int i= 0; i < ITERATIONS; i++) {
+            long start= SystemClock.elapsedRealtime();
+            inflateDeclared();
+            declared+= SystemClock.elapsedRealtime() - start;
+
+            start= SystemClock.elapsedRealtime();
+            inflateIntoContainers();
+            contained+= SystemClock.elapsedRealtime() - start;
+        }
+
+        // Timing depends on the device, so it is reported rather than asserted
+        Log.i(TAG, "declared.msPerInflation=" + declared / (double) ITERATIONS);
+        Log.i(TAG, "contained.msPerInflation=" + contained / (double) ITERATIONS);
+    }
+
+    private View inflateDeclared() {
+        return mInflater.inflate(com.novationmobile.view.tests.R.layout.sliding_declared, null);
+    }
+
+    private View inflateIntoContainers() {
+        final View view=
+                mInflater.inflate(com.novationmobile.view.tests.R.layout.sliding_containers, null);
+        for (int id : new int[] {
+                R.id.novation__fragment_main, R.id.novation__fragment_menu
+        }) {
+            final ViewGroup container= (ViewGroup) view.findViewById(id);
+            mInflater.inflate(com.novationmobile.view.tests.R.layout.content, container);
+        }
+        return view;
+    }
+
+    private static int getDepth(View view) {
+        int depth= 0;
+        if (view instanceof ViewGroup) {
+            final ViewGroup group= (ViewGroup) view;
+            for (int i= 0; i < group.getChildCount(); i++) {
+                depth= Math.max(depth, getDepth(group.getChildAt(i)) + 1);
+            }
+        }
+        return depth;
+    }
+}
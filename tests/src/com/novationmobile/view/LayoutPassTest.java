@@ -0,0 +1,73 @@
+package com.novationmobile.view;
+
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.novationmobile.view.tests.R;
+
+/**
+ * The menu is sized during measure, so a new width of the view or the menu
+ * lays it out exactly once, at its new size.
+ */
+public class LayoutPassTest extends SlidingTestCase {
+
+    private PassCountingView mCounter;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mCounter= new PassCountingView(getActivity());
+                ((ViewGroup) mView.findViewById(R.id.menu)).addView(mCounter,
+                        new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT,
+                                FrameLayout.LayoutParams.MATCH_PARENT));
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    public void testViewWidthChangeResizesMenuInOnePass() throws Throwable {
+        mCounter.reset();
+        final int width= mView.getWidth() / 2;
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.getLayoutParams().width= width;
+                mView.requestLayout();
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+
+        // Like a rotation: the menu takes its share of the new width right away
+        assertEquals(width, mView.getWidth());
+        assertEquals((int) (width * mView.getMenuWidth()), mCounter.getWidth());
+        assertEquals(1, mCounter.mLayouts);
+    }
+
+    public void testMenuWidthChangeLaysOutOnce() throws Throwable {
+        mCounter.reset();
+        final int width= mCounter.getWidth();
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.setMenuWidth(mView.getMenuWidth() / 2f);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+
+        assertEquals(1, mCounter.mMeasures);
+        assertEquals(1, mCounter.mLayouts);
+        assertTrue(mCounter.getWidth() < width);
+
+        // The same width again changes nothing
+        mCounter.reset();
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.setMenuWidth(mView.getMenuWidth());
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+
+        assertEquals(0, mCounter.mMeasures);
+        assertEquals(0, mCounter.mLayouts);
+    }
+}
@@ -0,0 +1,100 @@
+package com.novationmobile.view;
+
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+import android.view.ViewConfiguration;
+
+/**
+ * A lazy menu is only created once it is about to be seen, or once the main
+ * thread is idle when it is warmed on idle.
+ */
+public class LazyMenuTest extends SlidingTestCase {
+
+    private volatile int mCreated;
+
+    private final SlidingMenuView.FragmentFactory mFactory=
+            new SlidingMenuView.FragmentFactory() {
+                public Fragment createFragment() {
+                    mCreated++;
+                    return new Fragment();
+                }
+            };
+
+    public void testMenuIsCreatedOnFirstOpen() throws Throwable {
+        setLazyMenu(false);
+
+        // A layout pass like the one at startup
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.requestLayout();
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        assertEquals(0, mCreated);
+
+        /*
+         * A touch that stays below the touch slop, without moving towards a
+         * menu: a horizontal movement would already prewarm the menu it heads
+         * for.
+         */
+        final int slop= ViewConfiguration.get(getActivity()).getScaledTouchSlop();
+        final float x= mView.getWidth() * .5f;
+        final float y= mView.getHeight() * .75f;
+        dispatch(TouchEvents.drag(x, y, x, y + slop / 2, 2));
+        getInstrumentation().waitForIdleSync();
+        assertEquals(0, mCreated);
+
+        runAndSettle(new Runnable() {
+            public void run() {
+                mView.animateOpen();
+            }
+        });
+        assertEquals(1, mCreated);
+        assertNotNull(mView.getMenuFragment(getManager()));
+
+        // Created once, then kept
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+                mView.open();
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        assertEquals(1, mCreated);
+    }
+
+    public void testMenuIsOnlyWarmedWhenAsked() throws Throwable {
+        setLazyMenu(false);
+        getInstrumentation().waitForIdleSync();
+        assertEquals(0, mCreated);
+    }
+
+    public void testMenuIsWarmedOnIdle() throws Throwable {
+        setLazyMenu(true);
+        getInstrumentation().waitForIdleSync();
+        assertEquals(1, mCreated);
+
+        // The transaction runs after the idle pass that created the menu
+        getInstrumentation().waitForIdleSync();
+        assertNotNull(mView.getMenuFragment(getManager()));
+
+        runAndSettle(new Runnable() {
+            public void run() {
+                mView.animateOpen();
+            }
+        });
+        assertEquals(1, mCreated);
+    }
+
+    private void setLazyMenu(final boolean warmOnIdle) throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.setMenuFragment(mFactory, getManager(), warmOnIdle);
+            }
+        });
+    }
+
+    private FragmentManager getManager() {
+        return getActivity().getSupportFragmentManager();
+    }
+}
@@ -0,0 +1,126 @@
+package com.novationmobile.view;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.novationmobile.view.tests.R;
+
+/**
+ * The menu is only drawn in the strip the main panel uncovers. A view
+ * filling the menu records the area it is allowed to draw in.
+ */
+public class MenuClipTest extends SlidingTestCase {
+
+    private static final int DRAG_MOVES= 10;
+
+    private ClipRecorder mRecorder;
+    private Bitmap mBitmap;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mRecorder= new ClipRecorder(getActivity());
+                ((ViewGroup) mView.findViewById(R.id.menu)).addView(mRecorder,
+                        new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT,
+                                FrameLayout.LayoutParams.MATCH_PARENT));
+                mBitmap= Bitmap.createBitmap(mView.getWidth(), mView.getHeight(),
+                        Bitmap.Config.ARGB_8888);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mBitmap.recycle();
+        super.tearDown();
+    }
+
+    public void testClosedMenuIsNotDrawn() throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+                mRecorder.reset();
+                mView.draw(new Canvas(mBitmap));
+            }
+        });
+        assertFalse(mRecorder.mDrawn);
+    }
+
+    public void testMenuIsClippedToUncoveredStrip() throws Throwable {
+        final int menuArea= mRecorder.getWidth() * mRecorder.getHeight();
+        for (final float fraction : new float[] {
+                .25f, .5f, .75f
+        }) {
+            final int[] offset= new int[1];
+            runTestOnUiThread(new Runnable() {
+                public void run() {
+                    offset[0]= drawWhileDragging(fraction);
+                }
+            });
+
+            assertTrue(mRecorder.mDrawn);
+            assertEquals("Clip width at offset " + offset[0], offset[0],
+                    mRecorder.mClip.width());
+            final int area= mRecorder.mClip.width() * mRecorder.mClip.height();
+            assertTrue("Drawn " + area + " of " + menuArea + " pixels", area < menuArea);
+        }
+    }
+
+    /**
+     * Drag the panel part of the way open, draw the view and let go again.
+     * 
+     * @return the slide offset the view was drawn at
+     */
+    private int drawWhileDragging(float fraction) {
+        final float y= mView.getHeight() * .75f;
+        final MotionEvent[] drag= TouchEvents.drag(1f, mView.getWidth() * fraction, y,
+                DRAG_MOVES);
+
+        // Everything but the up, so the panel stays where the finger is
+        for (int i= 0; i < drag.length - 1; i++) {
+            mView.dispatchTouchEvent(drag[i]);
+        }
+        final int offset= mView.getSlideOffset();
+        mRecorder.reset();
+        mView.draw(new Canvas(mBitmap));
+
+        final long now= SystemClock.uptimeMillis();
+        final MotionEvent cancel= MotionEvent.obtain(now, now, MotionEvent.ACTION_CANCEL, 0f,
+                y, 0);
+        mView.dispatchTouchEvent(cancel);
+        cancel.recycle();
+        TouchEvents.recycle(drag);
+        mView.close();
+        return offset;
+    }
+
+    private static class ClipRecorder extends View {
+        final Rect mClip= new Rect();
+        boolean mDrawn;
+
+        ClipRecorder(Context context) {
+            super(context);
+        }
+
+        void reset() {
+            mDrawn= false;
+            mClip.setEmpty();
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            mDrawn= true;
+            canvas.getClipBounds(mClip);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.novationmobile.view;
+
+import java.util.ArrayList;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+/**
+ * A second finger landing on or leaving the panel during a drag hands the drag
+ * over without moving the panel to the other finger.
+ */
+public class MultiTouchTest extends SlidingTestCase {
+
+    // Pixels every finger moves per frame
+    private static final float STEP= 8f;
+
+    private static final int MOVES= 10;
+
+    // Pointer ids of the fingers down
+    private static final int[] FIRST= {
+            0
+    };
+    private static final int[] SECOND= {
+            1
+    };
+    private static final int[] BOTH= {
+            0, 1
+    };
+
+    private final ArrayList<MotionEvent> mEvents= new ArrayList<MotionEvent>();
+    private long mDownTime;
+    private long mEventTime;
+
+    public void testSecondFingerDoesntMovePanel() throws Throwable {
+        final float[] x= {
+                mView.getWidth() * .1f, mView.getWidth() * .6f
+        };
+
+        mDownTime= SystemClock.uptimeMillis();
+        mEventTime= mDownTime;
+
+        // One finger drags, a second one lands and drags along, then the
+        // first one is lifted, then the second one
+        add(MotionEvent.ACTION_DOWN, x, FIRST, 0);
+        move(x, FIRST, MOVES);
+        add(MotionEvent.ACTION_POINTER_DOWN, x, BOTH, 1);
+        move(x, BOTH, MOVES);
+        add(MotionEvent.ACTION_POINTER_UP, x, BOTH, 0);
+        move(x, SECOND, MOVES);
+        add(MotionEvent.ACTION_UP, x, SECOND, 0);
+        assertJumpFree();
+    }
+
+    public void testLiftingActiveFingerHandsDragOver() throws Throwable {
+        final float[] x= {
+                mView.getWidth() * .1f, mView.getWidth() * .6f
+        };
+
+        mDownTime= SystemClock.uptimeMillis();
+        mEventTime= mDownTime;
+
+        // The second finger takes over, and is lifted before the first one
+        add(MotionEvent.ACTION_DOWN, x, FIRST, 0);
+        move(x, FIRST, MOVES);
+        add(MotionEvent.ACTION_POINTER_DOWN, x, BOTH, 1);
+        move(x, BOTH, MOVES);
+        add(MotionEvent.ACTION_POINTER_UP, x, BOTH, 1);
+        move(x, FIRST, MOVES);
+        add(MotionEvent.ACTION_UP, x, FIRST, 0);
+        assertJumpFree();
+    }
+
+    /**
+     * Dispatch the gesture, and check the panel never moves further between
+     * two events than a finger does.
+     */
+    private void assertJumpFree() throws Throwable {
+        final int[] offsets= new int[mEvents.size()];
+        runAndSettle(new Runnable() {
+            public void run() {
+                for (int i= 0; i < offsets.length; i++) {
+                    mView.dispatchTouchEvent(mEvents.get(i));
+                    offsets[i]= mView.getSlideOffset();
+                }
+            }
+        });
+        for (MotionEvent ev : mEvents) {
+            ev.recycle();
+        }
+
+        assertTrue("The panel didn't follow the drag", offsets[offsets.length - 2] > 0);
+
+        // The panel catches up with the finger when the drag starts
+        for (int i= 1; i < offsets.length; i++) {
+            final int jump= Math.abs(offsets[i] - offsets[i - 1]);
+            assertTrue("Panel jumped " + jump + "px at event " + i,
+                    offsets[i - 1] == 0 || jump <= Math.ceil(STEP));
+        }
+    }
+
+    /**
+     * Move the fingers down along, by their pointer id.
+     */
+    private void move(float[] x, int[] ids, int moves) {
+        for (int i= 0; i < moves; i++) {
+            for (int id : ids) {
+                x[id]+= STEP;
+            }
+            add(MotionEvent.ACTION_MOVE, x, ids, 0);
+        }
+    }
+
+    /**
+     * Add an event with the fingers down, by their pointer id.
+     */
+    private void add(int action, float[] x, int[] ids, int actionIndex) {
+        final MotionEvent.PointerProperties[] properties=
+                new MotionEvent.PointerProperties[ids.length];
+        final MotionEvent.PointerCoords[] coords= new MotionEvent.PointerCoords[ids.length];
+        for (int i= 0; i < ids.length; i++) {
+            properties[i]= new MotionEvent.PointerProperties();
+            properties[i].id= ids[i];
+            properties[i].toolType= MotionEvent.TOOL_TYPE_FINGER;
+            coords[i]= new MotionEvent.PointerCoords();
+            coords[i].x= x[ids[i]];
+            coords[i].y= mView.getHeight() * .75f;
+            coords[i].pressure= 1f;
+            coords[i].size= 1f;
+        }
+
+        mEvents.add(MotionEvent.obtain(mDownTime, mEventTime,
+                action | actionIndex << MotionEvent.ACTION_POINTER_INDEX_SHIFT, ids.length,
+                properties, coords, 0, 0, 1f, 1f, 0, 0, 0, 0));
+        mEventTime+= TouchEvents.FRAME_MILLIS;
+    }
+}
@@ -0,0 +1,110 @@
+package com.novationmobile.view;
+
+import android.content.Context;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.HorizontalScrollView;
+
+import com.novationmobile.view.tests.R;
+
+/**
+ * Horizontal drags over a horizontal scroller in the main panel go to the
+ * scroller while it can scroll that way, and to the panel otherwise.
+ */
+public class NestedScrollTest extends SlidingTestCase {
+
+    private static final int DRAG_MOVES= 20;
+
+    private Carousel mCarousel;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mCarousel= new Carousel(getActivity());
+                final View content= new View(getActivity());
+                mCarousel.addView(content, new ViewGroup.LayoutParams(mView.getWidth() * 3,
+                        ViewGroup.LayoutParams.MATCH_PARENT));
+
+                // The bottom quarter of the main panel
+                ((ViewGroup) mView.findViewById(R.id.main)).addView(mCarousel,
+                        new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT,
+                                mView.getHeight() / 4, Gravity.BOTTOM));
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    public void testScrollerThatCanScrollKeepsDrag() throws Throwable {
+        scrollCarouselTo(mView.getWidth());
+        dispatch(drag(.1f, .9f));
+
+        assertEquals(SlidingMenuView.SIDE_NONE, mView.getOpenSide());
+        assertEquals(0, mView.getSlideOffset());
+        assertFalse(mCarousel.mCancelled);
+        assertTrue(mCarousel.getScrollX() < mView.getWidth());
+    }
+
+    public void testScrollerAtEdgeLetsPanelOpen() throws Throwable {
+        scrollCarouselTo(0);
+        dragAndSettle(drag(.1f, .9f));
+
+        assertEquals(SlidingMenuView.SIDE_LEFT, mView.getOpenSide());
+        assertTrue(mCarousel.mCancelled);
+    }
+
+    public void testScrollerAtEdgeKeepsDragWithoutMenu() throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.setRightMenuWidth(0f);
+            }
+        });
+        scrollCarouselTo(mView.getWidth() * 2);
+        dispatch(drag(.9f, .1f));
+
+        // Nothing to uncover on the right, so the gesture stays with the scroller
+        assertEquals(SlidingMenuView.SIDE_NONE, mView.getOpenSide());
+        assertEquals(0, mView.getSlideOffset());
+        assertFalse(mCarousel.mCancelled);
+    }
+
+    private void scrollCarouselTo(final int x) throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mCarousel.scrollTo(x, 0);
+                mCarousel.mCancelled= false;
+            }
+        });
+    }
+
+    /**
+     * @return a drag between fractions of the width, over the scroller
+     */
+    private MotionEvent[] drag(float from, float to) {
+        final float y= mView.getHeight() * .875f;
+        return TouchEvents.drag(mView.getWidth() * from, mView.getWidth() * to, y, DRAG_MOVES);
+    }
+
+    /**
+     * Remembers whether its gesture was taken away.
+     */
+    private static class Carousel extends HorizontalScrollView {
+        boolean mCancelled;
+
+        Carousel(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean dispatchTouchEvent(MotionEvent ev) {
+            if (ev.getAction() == MotionEvent.ACTION_CANCEL) {
+                mCancelled= true;
+            }
+            return super.dispatchTouchEvent(ev);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.novationmobile.view;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Counts its measure and layout passes, to see which passes reach the part
+ * of the hierarchy it is in.
+ */
+public class PassCountingView extends View {
+
+    int mMeasures;
+    int mLayouts;
+
+    public PassCountingView(Context context) {
+        super(context);
+    }
+
+    public PassCountingView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    void reset() {
+        mMeasures= 0;
+        mLayouts= 0;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        mMeasures++;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        mLayouts++;
+    }
+}
@@ -0,0 +1,153 @@
+package com.novationmobile.view;
+
+import android.test.AndroidTestCase;
+import android.view.View;
+
+/**
+ * The animation curves only depend on the time since the start, so they are
+ * computed here frame by frame at 60Hz, without a display.
+ */
+public class SlideAnimatorTest extends AndroidTestCase implements SlideAnimator.Callback {
+
+    private static final int FRAME_MILLIS= 16;
+    private static final int MENU_WIDTH= 600;
+    private static final long MAX_SETTLE_MILLIS= 2000;
+
+    private SlideAnimator mAnimator;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mAnimator= new SlideAnimator(new View(getContext()), this, 60f);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mAnimator.cancel();
+        super.tearDown();
+    }
+
+    public void onAnimationFrame(int offset) {
+    }
+
+    public void onAnimationEnd(int frames, int droppedFrames) {
+    }
+
+    public void testSpringSettlesSoonerWithMoreVelocity() {
+        long previous= Long.MAX_VALUE;
+        for (float velocity : new float[] {
+                0f, 1000f, 2000f, 4000f, 8000f, 16000f
+        }) {
+            mAnimator.startSpring(0, MENU_WIDTH, velocity,
+                    SlidingMenuView.DEFAULT_SPRING_STIFFNESS,
+                    SlidingMenuView.DEFAULT_SPRING_DAMPING_RATIO);
+            final long time= settle();
+            assertTrue("Settle time " + time + "ms at " + velocity + "px/s",
+                    time <= previous);
+            previous= time;
+        }
+    }
+
+    public void testSpringStartsWithReleaseVelocity() {
+        mAnimator.startSpring(100, MENU_WIDTH, 3000f, SlidingMenuView.DEFAULT_SPRING_STIFFNESS,
+                SlidingMenuView.DEFAULT_SPRING_DAMPING_RATIO);
+        mAnimator.computeFrame(0);
+        assertEquals(100, mAnimator.getFrameOffset());
+        assertEquals(3000f, mAnimator.getFrameVelocity(), 1f);
+    }
+
+    public void testCriticallyDampedSpringStaysInRange() {
+        for (float velocity : new float[] {
+                -4000f, 0f, 4000f, 16000f
+        }) {
+            mAnimator.startSpring(0, MENU_WIDTH, velocity,
+                    SlidingMenuView.DEFAULT_SPRING_STIFFNESS, 1f);
+            for (long t= 0; !mAnimator.computeFrame(t); t+= FRAME_MILLIS) {
+                assertTrue("Offset " + mAnimator.getFrameOffset() + " at " + t + "ms",
+                        mAnimator.getFrameOffset() <= MENU_WIDTH);
+            }
+        }
+    }
+
+    public void testSpringOnlyDependsOnTime() {
+        mAnimator.startSpring(MENU_WIDTH, 0, -2500f, SlidingMenuView.DEFAULT_SPRING_STIFFNESS,
+                .7f);
+        final long time= settle();
+        final int frames= (int) (time / FRAME_MILLIS) + 1;
+        final int[] offsets= new int[frames];
+        for (int i= 0; i < frames; i++) {
+            mAnimator.computeFrame(i * FRAME_MILLIS);
+            offsets[i]= mAnimator.getFrameOffset();
+        }
+
+        // Skipped and repeated frames give the same positions
+        for (int i= frames - 1; i >= 0; i-= 3) {
+            mAnimator.computeFrame(i * FRAME_MILLIS);
+            assertEquals(offsets[i], mAnimator.getFrameOffset());
+        }
+    }
+
+    public void testRetargetKeepsPositionAndVelocity() {
+        mAnimator.start(0, MENU_WIDTH, 300, 0f);
+        mAnimator.computeFrame(100);
+        final int offset= mAnimator.getFrameOffset();
+        final float velocity= mAnimator.getFrameVelocity();
+        assertTrue(velocity > 0f);
+
+        // Toggled back while opening
+        mAnimator.start(offset, 0, 300, velocity);
+        mAnimator.computeFrame(0);
+        assertEquals(offset, mAnimator.getFrameOffset());
+        assertEquals(velocity, mAnimator.getFrameVelocity(), 1f);
+    }
+
+    public void testRapidTogglesStayContinuous() {
+        // Four times the average step of a 300ms animation over the width
+        final int maxStep= MENU_WIDTH * FRAME_MILLIS / 300 * 4;
+
+        mAnimator.start(0, MENU_WIDTH, 300, 0f);
+        int target= MENU_WIDTH;
+        int previous= 0;
+        for (int toggle= 0; toggle < 20; toggle++) {
+            // Toggle every third frame
+            for (long t= FRAME_MILLIS; t <= 3 * FRAME_MILLIS; t+= FRAME_MILLIS) {
+                mAnimator.computeFrame(t);
+                final int offset= mAnimator.getFrameOffset();
+                assertTrue("Jumped from " + previous + " to " + offset,
+                        Math.abs(offset - previous) <= maxStep);
+                previous= offset;
+            }
+
+            target= target == 0 ? MENU_WIDTH : 0;
+            mAnimator.start(previous, target, 300, mAnimator.getFrameVelocity());
+        }
+    }
+
+    public void testCarriedVelocityDoesNotOvershoot() {
+        // A fast panel retargeted close to its end
+        mAnimator.start(590, MENU_WIDTH, 0, 20000f);
+        for (long t= 0; !mAnimator.computeFrame(t); t+= FRAME_MILLIS) {
+            assertTrue(mAnimator.getFrameOffset() >= 590);
+            assertTrue(mAnimator.getFrameOffset() <= MENU_WIDTH);
+        }
+
+        mAnimator.start(10, 0, 0, -20000f);
+        for (long t= 0; !mAnimator.computeFrame(t); t+= FRAME_MILLIS) {
+            assertTrue(mAnimator.getFrameOffset() >= 0);
+            assertTrue(mAnimator.getFrameOffset() <= 10);
+        }
+    }
+
+    /**
+     * @return milliseconds until the animation is finished
+     */
+    private long settle() {
+        for (long t= 0; t <= MAX_SETTLE_MILLIS; t+= FRAME_MILLIS) {
+            if (mAnimator.computeFrame(t)) {
+                return t;
+            }
+        }
+        fail("Not settled after " + MAX_SETTLE_MILLIS + "ms");
+        return MAX_SETTLE_MILLIS;
+    }
+}
@@ -0,0 +1,94 @@
+package com.novationmobile.view;
+
+import android.view.View;
+
+import com.novationmobile.view.tests.R;
+
+/**
+ * Both slide engines must end in the same states for the same calls and
+ * gestures.
+ */
+public class SlideEngineTest extends SlidingTestCase {
+
+    private static final int DRAG_MOVES= 20;
+
+    public void testEnginesEndInSameStates() throws Throwable {
+        final int[][] scroll= runSteps(SlidingMenuView.SLIDE_ENGINE_SCROLL);
+        final int[][] translation= runSteps(SlidingMenuView.SLIDE_ENGINE_TRANSLATION);
+
+        for (int i= 0; i < scroll.length; i++) {
+            assertEquals("Open side after step " + i, scroll[i][0], translation[i][0]);
+            assertEquals("Offset after step " + i, scroll[i][1], translation[i][1]);
+            assertEquals("Main panel position after step " + i, scroll[i][2],
+                    translation[i][2]);
+        }
+    }
+
+    /**
+     * @return the open side, slide offset and main panel position on screen
+     *         after every step
+     */
+    private int[][] runSteps(final int engine) throws Throwable {
+        final int width= mView.getWidth();
+        final float y= mView.getHeight() * .75f;
+        final int[][] states= new int[8][];
+        int step= 0;
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+                mView.setSlideEngine(engine);
+                mView.open();
+            }
+        });
+        states[step++]= getState();
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+            }
+        });
+        states[step++]= getState();
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.open(SlidingMenuView.SIDE_RIGHT);
+            }
+        });
+        states[step++]= getState();
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+            }
+        });
+        states[step++]= getState();
+
+        dragAndSettle(TouchEvents.drag(1f, width * .9f, y, DRAG_MOVES));
+        states[step++]= getState();
+
+        dragAndSettle(TouchEvents.drag(width * .9f, 1f, y, DRAG_MOVES));
+        states[step++]= getState();
+
+        dragAndSettle(TouchEvents.drag(width - 1f, width * .1f, y, DRAG_MOVES));
+        states[step++]= getState();
+
+        runAndSettle(new Runnable() {
+            public void run() {
+                mView.animateClose();
+            }
+        });
+        states[step++]= getState();
+
+        return states;
+    }
+
+    private int[] getState() {
+        final int[] location= new int[2];
+        final View main= mView.findViewById(R.id.main);
+        main.getLocationOnScreen(location);
+        return new int[] {
+                mView.getOpenSide(), mView.getSlideOffset(), location[0]
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.novationmobile.view;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+
+import com.novationmobile.view.tests.R;
+
+/**
+ * Hosts the view under test, with plain menus on both sides and a plain main
+ * panel, so the tests only see the view's own work.
+ */
+public class SlidingTestActivity extends FragmentActivity {
+
+    private SlidingMenuView mSlidingMenu;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.sliding_test);
+        mSlidingMenu= (SlidingMenuView) findViewById(R.id.sliding_menu);
+    }
+
+    public SlidingMenuView getSlidingMenu() {
+        return mSlidingMenu;
+    }
+}
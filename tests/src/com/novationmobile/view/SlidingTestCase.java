@@ -0,0 +1,101 @@
+package com.novationmobile.view;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Runs a test against the view of {@link SlidingTestActivity}, with helpers
+ * to drive it from the main thread and wait for its animations.
+ */
+abstract class SlidingTestCase extends ActivityInstrumentationTestCase2<SlidingTestActivity> {
+
+    // Build.VERSION_CODES.KITKAT, not in the SDK the tests build against
+    static final int KITKAT= 19;
+
+    private static final long SNAP_TIMEOUT_SECONDS= 5;
+
+    protected SlidingMenuView mView;
+    private volatile CountDownLatch mSnapLatch;
+
+    SlidingTestCase() {
+        super(SlidingTestActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mView= getActivity().getSlidingMenu();
+        getInstrumentation().waitForIdleSync();
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mView.setOnSnapFinishedListener(new SlidingMenuView.OnSnapFinishedListener() {
+                    public void onSnapFinished(boolean open, int frames, int droppedFrames) {
+                        final CountDownLatch latch= mSnapLatch;
+                        if (latch != null) {
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Dispatch a gesture on the main thread and wait for the animation it
+     * ends with.
+     */
+    protected void dragAndSettle(final MotionEvent[] events) throws Throwable {
+        runAndSettle(new Runnable() {
+            public void run() {
+                TouchEvents.dispatch(mView, events);
+            }
+        });
+        TouchEvents.recycle(events);
+    }
+
+    /**
+     * Dispatch a gesture on the main thread, for gestures that don't animate
+     * the panel.
+     */
+    protected void dispatch(final MotionEvent[] events) throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                TouchEvents.dispatch(mView, events);
+            }
+        });
+        TouchEvents.recycle(events);
+    }
+
+    /**
+     * Run something that starts an animation on the main thread, and wait for
+     * the animation to finish.
+     */
+    protected void runAndSettle(Runnable action) throws Throwable {
+        mSnapLatch= new CountDownLatch(1);
+        runTestOnUiThread(action);
+        assertTrue("Animation didn't finish",
+                mSnapLatch.await(SNAP_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        mSnapLatch= null;
+        getInstrumentation().waitForIdleSync();
+    }
+
+    /**
+     * @return number of views in a hierarchy, the view itself included
+     */
+    static int countViews(View view) {
+        int count= 1;
+        if (view instanceof ViewGroup) {
+            final ViewGroup group= (ViewGroup) view;
+            for (int i= 0; i < group.getChildCount(); i++) {
+                count+= countViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+}
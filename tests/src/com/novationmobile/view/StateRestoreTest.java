@@ -0,0 +1,58 @@
+package com.novationmobile.view;
+
+import android.app.Instrumentation;
+
+import com.novationmobile.view.tests.R;
+
+/**
+ * A recreated activity shows the menu the way it was left, in the first
+ * layout, without an animation or extra layout passes.
+ */
+public class StateRestoreTest extends SlidingTestCase {
+
+    private static final long RECREATE_TIMEOUT_MILLIS= 5000;
+
+    public void testRestoresOpenMenuWithoutExtraLayout() throws Throwable {
+        // A fresh start with the menu closed is the baseline
+        final PassCountingView counter=
+                (PassCountingView) getActivity().findViewById(R.id.main_counter);
+        final int measures= counter.mMeasures;
+        final int layouts= counter.mLayouts;
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.setMenuWidth(.5f);
+                mView.open();
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        final int offset= mView.getSlideOffset();
+
+        final Instrumentation.ActivityMonitor monitor= getInstrumentation().addMonitor(
+                SlidingTestActivity.class.getName(), null, false);
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                getActivity().recreate();
+            }
+        });
+        final SlidingTestActivity activity=
+                (SlidingTestActivity) monitor.waitForActivityWithTimeout(RECREATE_TIMEOUT_MILLIS);
+        getInstrumentation().removeMonitor(monitor);
+        assertNotNull("Activity wasn't recreated", activity);
+        getInstrumentation().waitForIdleSync();
+
+        try {
+            final SlidingMenuView view= activity.getSlidingMenu();
+            assertEquals(SlidingMenuView.SIDE_LEFT, view.getOpenSide());
+            assertEquals(.5f, view.getMenuWidth(), 0f);
+            assertEquals(offset, view.getSlideOffset());
+
+            final PassCountingView restored=
+                    (PassCountingView) activity.findViewById(R.id.main_counter);
+            assertEquals(measures, restored.mMeasures);
+            assertEquals(layouts, restored.mLayouts);
+        } finally {
+            activity.finish();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.novationmobile.view;
+
+import android.os.Debug;
+import android.view.MotionEvent;
+
+/**
+ * The touch path must not allocate once it is warmed up: garbage collections
+ * during a drag drop frames on low end devices.
+ */
+public class TouchAllocationTest extends SlidingTestCase {
+
+    private static final int WARMUP_ITERATIONS= 20;
+    private static final int ITERATIONS= 50;
+    private static final int DRAG_MOVES= 60;
+
+    public void testDragDoesNotAllocate() throws Throwable {
+        // Below the buttons, so only the view itself handles the touch
+        final float y= mView.getHeight() * .75f;
+        final MotionEvent[] opening= TouchEvents.drag(1f, mView.getWidth() * .9f, y, DRAG_MOVES);
+        final MotionEvent[] closing= TouchEvents.drag(mView.getWidth() * .9f, 1f, y, DRAG_MOVES);
+        final int[] allocations= new int[1];
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                replay(opening, closing, WARMUP_ITERATIONS);
+
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                replay(opening, closing, ITERATIONS);
+                Debug.stopAllocCounting();
+                allocations[0]= Debug.getThreadAllocCount();
+            }
+        });
+
+        TouchEvents.recycle(opening);
+        TouchEvents.recycle(closing);
+
+        final int events= ITERATIONS * (opening.length + closing.length);
+        assertEquals("Objects allocated during " + events + " events", 0, allocations[0]);
+    }
+
+    private void replay(MotionEvent[] opening, MotionEvent[] closing, int iterations) {
+        for (int i= 0; i < iterations; i++) {
+            TouchEvents.dispatch(mView, opening);
+            mView.open();
+            TouchEvents.dispatch(mView, closing);
+            mView.close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.novationmobile.view;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Synthetic touch gestures, dispatched the way a real touch is.
+ */
+final class TouchEvents {
+
+    // One move per 60Hz frame
+    static final int FRAME_MILLIS= 16;
+
+    private TouchEvents() {
+    }
+
+    /**
+     * A horizontal drag from one point to another, one move per frame.
+     */
+    static MotionEvent[] drag(float fromX, float toX, float y, int moves) {
+        return drag(fromX, y, toX, y, moves);
+    }
+
+    static MotionEvent[] drag(float fromX, float fromY, float toX, float toY, int moves) {
+        final MotionEvent[] events= new MotionEvent[moves + 2];
+        final long downTime= SystemClock.uptimeMillis();
+        final float stepX= (toX - fromX) / moves;
+        final float stepY= (toY - fromY) / moves;
+
+        events[0]= MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, fromX, fromY,
+                0);
+        for (int i= 1; i <= moves; i++) {
+            events[i]= MotionEvent.obtain(downTime, downTime + i * FRAME_MILLIS,
+                    MotionEvent.ACTION_MOVE, fromX + i * stepX, fromY + i * stepY, 0);
+        }
+        events[moves + 1]= MotionEvent.obtain(downTime, downTime + (moves + 1) * FRAME_MILLIS,
+                MotionEvent.ACTION_UP, toX, toY, 0);
+        return events;
+    }
+
+    /**
+     * A quick tap at a point.
+     */
+    static MotionEvent[] tap(float x, float y) {
+        final long downTime= SystemClock.uptimeMillis();
+        return new MotionEvent[] {
+                MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0),
+                MotionEvent.obtain(downTime, downTime + FRAME_MILLIS, MotionEvent.ACTION_UP, x,
+                        y, 0)
+        };
+    }
+
+    static void dispatch(View view, MotionEvent[] events) {
+        for (MotionEvent ev : events) {
+            view.dispatchTouchEvent(ev);
+        }
+    }
+
+    static void recycle(MotionEvent[] events) {
+        for (MotionEvent ev : events) {
+            ev.recycle();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.novationmobile.view;
+
+import android.view.MotionEvent;
+
+/**
+ * Which gestures can move the panel in each touch mode, fed as synthetic
+ * event sequences.
+ */
+public class TouchModeTest extends SlidingTestCase {
+
+    private static final int DRAG_MOVES= 20;
+
+    // Enough moves for a drag that takes too long to be a tap
+    private static final int SLOW_DRAG_MOVES= 50;
+
+    public void testFullscreenDragOpensFromAnywhere() throws Throwable {
+        setTouchMode(SlidingMenuView.TOUCH_MODE_FULLSCREEN);
+        dragAndSettle(drag(.3f, .9f));
+        assertEquals(SlidingMenuView.SIDE_LEFT, mView.getOpenSide());
+    }
+
+    public void testBezelDragOnlyOpensFromEdges() throws Throwable {
+        setTouchMode(SlidingMenuView.TOUCH_MODE_BEZEL);
+        dispatch(drag(.3f, .9f));
+        assertEquals(SlidingMenuView.SIDE_NONE, mView.getOpenSide());
+        assertEquals(0, mView.getSlideOffset());
+
+        dragAndSettle(TouchEvents.drag(1f, mView.getWidth() * .9f, getY(), DRAG_MOVES));
+        assertEquals(SlidingMenuView.SIDE_LEFT, mView.getOpenSide());
+    }
+
+    public void testBezelOpenPanelDragsFromAnywhere() throws Throwable {
+        setTouchMode(SlidingMenuView.TOUCH_MODE_BEZEL);
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.open();
+            }
+        });
+        dragAndSettle(drag(.9f, .1f));
+        assertEquals(SlidingMenuView.SIDE_NONE, mView.getOpenSide());
+    }
+
+    public void testNoneNeverDragsButTapCloses() throws Throwable {
+        setTouchMode(SlidingMenuView.TOUCH_MODE_NONE);
+        dispatch(TouchEvents.drag(1f, mView.getWidth() * .9f, getY(), DRAG_MOVES));
+        assertEquals(SlidingMenuView.SIDE_NONE, mView.getOpenSide());
+        assertEquals(0, mView.getSlideOffset());
+
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.open();
+            }
+        });
+        final int offset= mView.getSlideOffset();
+        dispatch(TouchEvents.drag(mView.getWidth() * .9f, mView.getWidth() * .1f, getY(),
+                SLOW_DRAG_MOVES));
+        assertEquals(SlidingMenuView.SIDE_LEFT, mView.getOpenSide());
+        assertEquals(offset, mView.getSlideOffset());
+
+        dragAndSettle(TouchEvents.tap(mView.getWidth() * .9f, getY()));
+        assertEquals(SlidingMenuView.SIDE_NONE, mView.getOpenSide());
+    }
+
+    private void setTouchMode(final int touchMode) throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            public void run() {
+                mView.close();
+                mView.setTouchMode(touchMode);
+            }
+        });
+    }
+
+    /**
+     * @return a drag between fractions of the width, below the buttons
+     */
+    private MotionEvent[] drag(float from, float to) {
+        return TouchEvents.drag(mView.getWidth() * from, mView.getWidth() * to, getY(),
+                DRAG_MOVES);
+    }
+
+    private float getY() {
+        return mView.getHeight() * .75f;
+    }
+}